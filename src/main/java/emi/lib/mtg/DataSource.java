@@ -1,5 +1,7 @@
 package emi.lib.mtg;
 
+import emi.lib.mtg.util.LazyPrints;
+
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.UUID;
@@ -64,6 +66,16 @@ public interface DataSource {
 	 */
 	java.util.Set<? extends Card.Print> prints();
 
+	/**
+	 * References to every card print known to this data source. Data sources which load prints lazily (see
+	 * {@link emi.lib.mtg.util.LazyPrints}) should override this to return their references without hydrating any prints;
+	 * by default, this is a view of {@link #prints()}.
+	 * @return Set of references to all card prints known to this data source.
+	 */
+	default java.util.Set<? extends Card.Print.Reference> printReferences() {
+		return LazyPrints.referencesOf(prints());
+	}
+
 	/**
 	 * Finds a card print by unique reference (combination of set code, card name, and collector number).
 	 * @param reference The print reference to look up.
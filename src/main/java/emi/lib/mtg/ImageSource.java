@@ -1,5 +1,7 @@
 package emi.lib.mtg;
 
+import emi.lib.mtg.img.ImageDecoder;
+
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.util.Iterator;
@@ -37,6 +39,37 @@ public interface ImageSource {
 	 */
 	BufferedImage open(Card.Print.Face facePrint) throws IOException;
 
+	/**
+	 * Attempt to open an image of the given card print at a particular size, e.g. for a thumbnail. Sources which
+	 * decode images themselves should override this to decode at reduced resolution (see
+	 * {@link emi.lib.mtg.img.ImageDecoder}) rather than decoding the full image and then scaling it down, which is
+	 * what this default implementation does.
+	 *
+	 * @param print The print of the card of which to find an image.
+	 * @param width The width of the image to return.
+	 * @param height The height of the image to return.
+	 * @return An image of the card print, exactly width by height pixels, or null if it couldn't be found.
+	 * @throws IOException if an error occurs while opening a card image the source located.
+	 */
+	default BufferedImage open(Card.Print print, int width, int height) throws IOException {
+		BufferedImage full = open(print);
+		return full != null ? ImageDecoder.fit(full, width, height) : null;
+	}
+
+	/**
+	 * Attempt to open an image of a card face at a particular size. See {@link #open(Card.Print, int, int)}.
+	 *
+	 * @param facePrint The print of the face for which to find an image.
+	 * @param width The width of the image to return.
+	 * @param height The height of the image to return.
+	 * @return An image of that face, exactly width by height pixels, or null if this source couldn't find such an image.
+	 * @throws IOException if an error occurs while opening a card image the source located.
+	 */
+	default BufferedImage open(Card.Print.Face facePrint, int width, int height) throws IOException {
+		BufferedImage full = open(facePrint);
+		return full != null ? ImageDecoder.fit(full, width, height) : null;
+	}
+
 	/**
 	 * Attempt to open an an image of the given card. Ideally, this means, "show me what I'd see if I opened a pack and
 	 * this was on top". Most cards should show just... the card. Transforms and melds should show the front face. Split
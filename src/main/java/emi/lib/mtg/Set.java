@@ -1,5 +1,7 @@
 package emi.lib.mtg;
 
+import emi.lib.mtg.util.LazyPrints;
+
 import java.time.LocalDate;
 import java.util.UUID;
 
@@ -64,6 +66,15 @@ public interface Set {
 	 */
 	java.util.Set<? extends Card.Print> prints();
 
+	/**
+	 * References to the prints in this set. Sets which load prints lazily should override this to return their
+	 * references without hydrating any prints; by default, this is a view of {@link #prints()}.
+	 * @return The set of references to cards printed in this set.
+	 */
+	default java.util.Set<? extends Card.Print.Reference> printReferences() {
+		return LazyPrints.referencesOf(prints());
+	}
+
 	/**
 	 * Finds a card print in this set by ID.
 	 * @param id Unique ID of the card print.
@@ -3,9 +3,8 @@ package emi.lib.mtg.game.ability;
 import emi.lib.mtg.Card;
 
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public interface Abilities {
@@ -21,60 +20,101 @@ public interface Abilities {
 				.map(type::cast);
 	}
 
+	default <T extends Ability> List<T> listOf(Class<T> type) {
+		return ofType(type).collect(Collectors.toList());
+	}
+
 	default <T extends Ability> T only(Class<T> type) {
 		return ofType(type).reduce(null, (a, b) -> (a != null ^ b != null) ? (a != null ? a : b) : null);
 	}
 
-	class DefaultAbilities implements Abilities {
-		private static final ServiceLoader<Ability.Parser> PARSERS = ServiceLoader.load(Ability.Parser.class);
-		private static final Pattern METAPATTERN;
-		private static final Map<String, Ability.Parser> PARSER_MAP;
-
-		static {
-			boolean first = true;
-			StringBuilder patternBuilder = new StringBuilder("(?m)^(?:");
-			Map<String, Ability.Parser> parserMap = new HashMap<>();
-			for (Ability.Parser parser : PARSERS) {
-				if (first) {
-					first = false;
-				} else {
-					patternBuilder.append('|');
+	/**
+	 * An immutable collection of abilities indexed by type. Each ability is filed under every class and interface it
+	 * extends or implements (up to {@link Ability}), so {@link #ofType}, {@link #listOf} and {@link #only} are simple
+	 * lookups rather than scans over every ability.
+	 */
+	class Indexed implements Abilities {
+		private static final Map<Class<?>, List<Class<?>>> SUPERTYPES = new ConcurrentHashMap<>();
+
+		private static List<Class<?>> supertypes(Class<?> type) {
+			return SUPERTYPES.computeIfAbsent(type, t -> {
+				java.util.Set<Class<?>> found = new LinkedHashSet<>();
+				Deque<Class<?>> queue = new ArrayDeque<>();
+				queue.add(t);
+
+				while (!queue.isEmpty()) {
+					Class<?> next = queue.poll();
+					if (!Ability.class.isAssignableFrom(next) || !found.add(next)) continue;
+					if (next.getSuperclass() != null) queue.add(next.getSuperclass());
+					queue.addAll(Arrays.asList(next.getInterfaces()));
 				}
 
-				patternBuilder.append("(?<").append(parser.type().getSimpleName()).append('>').append(parser.pattern()).append(')');
-				parserMap.put(parser.type().getSimpleName(), parser);
-			}
-			patternBuilder.append(")$");
-			try {
-				METAPATTERN = Pattern.compile(patternBuilder.toString());
-				PARSER_MAP = Collections.unmodifiableMap(parserMap);
-			} catch (PatternSyntaxException pse) {
-				pse.printStackTrace();
-				throw new Error(pse);
-			}
+				return Collections.unmodifiableList(new ArrayList<>(found));
+			});
 		}
 
-		private final Set<Ability> backing;
+		private final List<Ability> all;
+		private final Map<Class<?>, List<Ability>> byType;
 
-		public DefaultAbilities(Card.Face face) {
-			Set<Ability> backing = new HashSet<>();
-
-			Matcher matcher = METAPATTERN.matcher(face.rules());
-			while (matcher.find()) {
-				// I hate having to iterate here. Why can't a matcher tell me the list of group names it matched?
-				for (Map.Entry<String, Ability.Parser> parser : PARSER_MAP.entrySet()) {
-					if (matcher.group(parser.getKey()) != null) {
-						backing.add(parser.getValue().make(face, matcher));
-					}
+		public Indexed(Collection<? extends Ability> abilities) {
+			this.all = Collections.unmodifiableList(new ArrayList<>(abilities));
+
+			Map<Class<?>, List<Ability>> byType = new HashMap<>();
+			for (Ability ability : all) {
+				for (Class<?> type : supertypes(ability.getClass())) {
+					byType.computeIfAbsent(type, t -> new ArrayList<>(1)).add(ability);
 				}
 			}
-
-			this.backing = backing;
+			byType.replaceAll((t, l) -> Collections.unmodifiableList(l));
+			this.byType = byType;
 		}
 
 		@Override
 		public Collection<Ability> allAbilities() {
-			return backing;
+			return all;
+		}
+
+		@Override
+		public <T extends Ability> Stream<T> ofType(Class<T> type) {
+			return listOf(type).stream();
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <T extends Ability> List<T> listOf(Class<T> type) {
+			return (List<T>) byType.getOrDefault(type, Collections.emptyList());
+		}
+
+		@Override
+		public <T extends Ability> T only(Class<T> type) {
+			List<T> list = listOf(type);
+			return list.size() == 1 ? list.get(0) : null;
+		}
+	}
+
+	class DefaultAbilities extends Indexed {
+		/**
+		 * Obtains the abilities of a face through the shared {@link AbilityCache}, parsing its rules text only if
+		 * necessary. Data sources should prefer this to the constructor.
+		 * @param face The face whose abilities to get.
+		 * @return The abilities printed on that face.
+		 */
+		public static Abilities of(Card.Face face) {
+			return AbilityCache.INSTANCE.get(face);
+		}
+
+		private static List<Ability> parse(Card.Face face) {
+			List<Ability> abilities = new ArrayList<>();
+			AbilityParsers.INSTANCE.parse(face, abilities::add);
+			return abilities;
+		}
+
+		public DefaultAbilities(Card.Face face) {
+			super(parse(face));
+		}
+
+		DefaultAbilities(Collection<? extends Ability> parsed) {
+			super(parsed);
 		}
 	}
 }
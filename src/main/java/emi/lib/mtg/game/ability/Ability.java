@@ -13,6 +13,27 @@ public interface Ability {
 		Class<? extends Ability> type();
 		String pattern();
 		Ability make(Card.Face card, Matcher match);
+
+		/**
+		 * Reduces an ability made by this parser to a list of string arguments, from which {@link #rebuild} can
+		 * recreate an equivalent ability without matching any text. See {@link AbilityDescriptor}.
+		 * @param ability An ability made by this parser.
+		 * @return The ability's arguments, or null if this parser doesn't support descriptors.
+		 */
+		default String[] describe(Ability ability) {
+			return null;
+		}
+
+		/**
+		 * Recreates an ability from the arguments returned by {@link #describe}.
+		 * @param card The face bearing the ability.
+		 * @param arguments The ability's arguments.
+		 * @return An ability equivalent to the one which was described, or null if this parser doesn't support
+		 * descriptors.
+		 */
+		default Ability rebuild(Card.Face card, String[] arguments) {
+			return null;
+		}
 	}
 
 	String text();
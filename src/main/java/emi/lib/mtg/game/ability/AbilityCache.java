@@ -0,0 +1,328 @@
+package emi.lib.mtg.game.ability;
+
+import emi.lib.mtg.Card;
+import emi.lib.mtg.DataSource;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+/**
+ * A bounded, least-recently-used cache of parsed abilities. Parsing a face's rules text is relatively expensive, and
+ * validators ask for a face's abilities over and over again; data sources should obtain abilities through
+ * {@link Abilities.DefaultAbilities#of(Card.Face)} (or their own instance of this class) rather than constructing
+ * {@link Abilities.DefaultAbilities} directly, so that each face is parsed once per process.
+ *
+ * Entries are keyed on a face's name and rules text rather than on the face object itself, since some parsers (e.g.
+ * {@link emi.lib.mtg.game.ability.pregame.Companion}) depend on the face's name. Faces sharing a name and rules text
+ * (reprints, in particular) share their parsed abilities.
+ *
+ * Data sources can opt into parsing every face up front, in parallel, during {@link DataSource#loadData} via the
+ * <code>preparse</code> methods. Given a store path, the parsed abilities are also persisted as
+ * {@link AbilityDescriptor}s, so that the next startup rebuilds known faces' abilities without any parsing at all.
+ */
+public class AbilityCache {
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+
+	public static final AbilityCache INSTANCE = new AbilityCache(DEFAULT_CAPACITY);
+
+	private static class Key {
+		private final String name, rules;
+		private final int hashCode;
+
+		public Key(Card.Face face) {
+			this.name = face.name();
+			this.rules = face.rules();
+			this.hashCode = Objects.hash(name, rules);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) return false;
+			Key other = (Key) obj;
+			return hashCode == other.hashCode && name.equals(other.name) && rules.equals(other.rules);
+		}
+	}
+
+	private static final int STORE_VERSION = 3;
+	private static final int PREPARSE_CHUNK = 256;
+
+	private static final ThreadLocal<MessageDigest> RULES_DIGEST = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException nsae) {
+			throw new Error(nsae);
+		}
+	});
+
+	private static final int RULES_DIGEST_LENGTH = 32;
+
+	/**
+	 * Identifies a face in a persisted store by its name and a SHA-256 digest of its rules text, without keeping the
+	 * whole text around. Errata'd rules text gets a different digest, so stale descriptors are never restored.
+	 */
+	private static class StoreKey {
+		private final String name;
+		private final byte[] rulesDigest;
+		private final int hashCode;
+
+		public StoreKey(String name, byte[] rulesDigest) {
+			this.name = name;
+			this.rulesDigest = rulesDigest;
+			this.hashCode = 31 * name.hashCode() + Arrays.hashCode(rulesDigest);
+		}
+
+		public StoreKey(Card.Face face) {
+			this(face.name(), RULES_DIGEST.get().digest(face.rules().getBytes(StandardCharsets.UTF_8)));
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof StoreKey)) return false;
+			StoreKey other = (StoreKey) obj;
+			return name.equals(other.name) && Arrays.equals(rulesDigest, other.rulesDigest);
+		}
+	}
+
+	private static class PreparseTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final List<Card.Face> faces;
+		private final int from, to;
+		private final Consumer<Card.Face> task;
+		private final AtomicInteger done;
+		private final DoubleConsumer progress;
+
+		public PreparseTask(List<Card.Face> faces, int from, int to, Consumer<Card.Face> task, AtomicInteger done, DoubleConsumer progress) {
+			this.faces = faces;
+			this.from = from;
+			this.to = to;
+			this.task = task;
+			this.done = done;
+			this.progress = progress;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > PREPARSE_CHUNK) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new PreparseTask(faces, from, mid, task, done, progress),
+						new PreparseTask(faces, mid, to, task, done, progress));
+				return;
+			}
+
+			for (int i = from; i < to; ++i) task.accept(faces.get(i));
+
+			done.addAndGet(to - from);
+			if (progress != null) {
+				synchronized (progress) {
+					// Read under the lock, so reports never go backwards however threads interleave.
+					progress.accept((double) done.get() / faces.size());
+				}
+			}
+		}
+	}
+
+	private final int capacity;
+	private final Map<Key, Abilities> cache;
+
+	public AbilityCache(int capacity) {
+		this.capacity = capacity;
+		this.cache = new LinkedHashMap<Key, Abilities>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Abilities> eldest) {
+				return size() > AbilityCache.this.capacity;
+			}
+		};
+	}
+
+	/**
+	 * Returns the abilities of the given face, parsing its rules text only if no face with the same name and rules text
+	 * has been parsed yet (or if it has since been evicted).
+	 * @param face The face whose abilities to get.
+	 * @return The abilities printed on that face.
+	 */
+	public Abilities get(Card.Face face) {
+		Key key = new Key(face);
+
+		synchronized (cache) {
+			Abilities abilities = cache.get(key);
+			if (abilities != null) return abilities;
+		}
+
+		// Parse outside the lock; if another thread beat us to it, prefer its result so everyone shares one instance.
+		Abilities parsed = new Abilities.DefaultAbilities(face);
+
+		synchronized (cache) {
+			Abilities existing = cache.putIfAbsent(key, parsed);
+			return existing != null ? existing : parsed;
+		}
+	}
+
+	/**
+	 * Parses the abilities of every face of every card in a data source ahead of time. Note that if the data source
+	 * contains more unique faces than this cache's capacity, some will be evicted again.
+	 * @param source The data source to warm the cache from. Should already be loaded.
+	 */
+	public void warm(DataSource source) {
+		for (Card card : source.cards()) {
+			for (Card.Face face : card.faces()) {
+				get(face);
+			}
+		}
+	}
+
+	/**
+	 * Parses the abilities of every face of every card in a data source in parallel on the common fork-join pool.
+	 * @param source The data source whose cards to parse. Should already be loaded.
+	 * @param progress Optional callback to report parsing progress (0-1).
+	 */
+	public void preparse(DataSource source, DoubleConsumer progress) {
+		preparse(source.cards(), ForkJoinPool.commonPool(), progress);
+	}
+
+	/**
+	 * Parses the abilities of every face of the given cards in parallel.
+	 * @param cards The cards whose faces to parse.
+	 * @param pool The fork-join pool on which to parse.
+	 * @param progress Optional callback to report parsing progress (0-1).
+	 */
+	public void preparse(Collection<? extends Card> cards, ForkJoinPool pool, DoubleConsumer progress) {
+		preparse(faces(cards), pool, progress, this::get);
+	}
+
+	/**
+	 * Parses the abilities of every face of every card in a data source in parallel on the common fork-join pool,
+	 * reusing and then updating the parse results persisted at <code>store</code>. A missing, outdated or unreadable
+	 * store is simply rebuilt.
+	 * @param source The data source whose cards to parse. Should already be loaded.
+	 * @param store The file in which to persist parse results, e.g. somewhere in the data source's data directory.
+	 * @param progress Optional callback to report parsing progress (0-1).
+	 * @throws IOException If the parse results couldn't be written.
+	 */
+	public void preparse(DataSource source, Path store, DoubleConsumer progress) throws IOException {
+		Map<StoreKey, List<AbilityDescriptor>> known = load(store);
+		Map<StoreKey, List<AbilityDescriptor>> records = new ConcurrentHashMap<>();
+
+		preparse(faces(source.cards()), ForkJoinPool.commonPool(), progress, face -> {
+			StoreKey key = new StoreKey(face);
+
+			List<AbilityDescriptor> stored = known.get(key);
+			if (stored != null) {
+				Abilities restored = AbilityDescriptor.rebuild(face, stored);
+				if (restored != null) {
+					records.put(key, stored);
+					put(face, restored);
+					return;
+				}
+			}
+
+			Abilities parsed = get(face);
+			List<AbilityDescriptor> descriptors = AbilityDescriptor.of(parsed);
+			if (descriptors != null) records.put(key, descriptors);
+		});
+
+		save(store, records);
+	}
+
+	private static List<Card.Face> faces(Collection<? extends Card> cards) {
+		List<Card.Face> faces = new ArrayList<>(cards.size());
+		for (Card card : cards) faces.addAll(card.faces());
+		return faces;
+	}
+
+	private static void preparse(List<Card.Face> faces, ForkJoinPool pool, DoubleConsumer progress, Consumer<Card.Face> task) {
+		if (faces.isEmpty()) {
+			if (progress != null) progress.accept(1.0);
+			return;
+		}
+
+		pool.invoke(new PreparseTask(faces, 0, faces.size(), task, new AtomicInteger(0), progress));
+	}
+
+	private void put(Card.Face face, Abilities abilities) {
+		synchronized (cache) {
+			cache.putIfAbsent(new Key(face), abilities);
+		}
+	}
+
+	private static Map<StoreKey, List<AbilityDescriptor>> load(Path store) {
+		if (!Files.isRegularFile(store)) return Collections.emptyMap();
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(store)))) {
+			if (in.readInt() != STORE_VERSION) return Collections.emptyMap();
+
+			int entries = in.readInt();
+			Map<StoreKey, List<AbilityDescriptor>> known = new HashMap<>(entries * 2);
+			for (int i = 0; i < entries; ++i) {
+				String name = in.readUTF();
+				byte[] rulesDigest = new byte[RULES_DIGEST_LENGTH];
+				in.readFully(rulesDigest);
+				StoreKey key = new StoreKey(name, rulesDigest);
+				int count = in.readUnsignedShort();
+				List<AbilityDescriptor> descriptors = new ArrayList<>(count);
+				for (int j = 0; j < count; ++j) descriptors.add(AbilityDescriptor.read(in));
+				known.put(key, descriptors);
+			}
+
+			return known;
+		} catch (IOException ioe) {
+			ioe.printStackTrace();
+			return Collections.emptyMap();
+		}
+	}
+
+	private static void save(Path store, Map<StoreKey, List<AbilityDescriptor>> records) throws IOException {
+		Path tmp = store.resolveSibling(store.getFileName() + ".tmp");
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+			out.writeInt(STORE_VERSION);
+			out.writeInt(records.size());
+			for (Map.Entry<StoreKey, List<AbilityDescriptor>> entry : records.entrySet()) {
+				out.writeUTF(entry.getKey().name);
+				out.write(entry.getKey().rulesDigest);
+				out.writeShort(entry.getValue().size());
+				for (AbilityDescriptor descriptor : entry.getValue()) descriptor.write(out);
+			}
+		}
+
+		Files.move(tmp, store, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	public int size() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	public void clear() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package emi.lib.mtg.game.ability;
+
+import emi.lib.mtg.Card;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * A compact, serializable description of a parsed ability: the name of the ability's type and a list of string
+ * arguments. Precomputed card databases can carry descriptors instead of rules text to parse, and rebuild live
+ * abilities from them without touching any regular expressions.
+ *
+ * Descriptors are produced and consumed by the registered {@link Ability.Parser}s via {@link Ability.Parser#describe}
+ * and {@link Ability.Parser#rebuild}. The registry maps each parser's {@link Ability.Parser#type} to that parser.
+ */
+public final class AbilityDescriptor implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private static final Map<String, Ability.Parser> REGISTRY = registry();
+
+	private static Map<String, Ability.Parser> registry() {
+		Map<String, Ability.Parser> registry = new HashMap<>();
+		for (Ability.Parser parser : AbilityParsers.INSTANCE.parsers()) registry.put(parser.type().getName(), parser);
+		return Collections.unmodifiableMap(registry);
+	}
+
+	/**
+	 * Describes an ability.
+	 * @param ability The ability to describe.
+	 * @return A descriptor for the ability, or null if no registered parser can describe it.
+	 */
+	public static AbilityDescriptor of(Ability ability) {
+		Ability.Parser parser = REGISTRY.get(ability.getClass().getName());
+		if (parser == null) return null;
+
+		String[] arguments = parser.describe(ability);
+		if (arguments == null) return null;
+
+		return new AbilityDescriptor(ability.getClass().getName(), arguments);
+	}
+
+	/**
+	 * Describes every ability in a collection.
+	 * @param abilities The abilities to describe.
+	 * @return A list of descriptors, or null if any ability couldn't be described.
+	 */
+	public static List<AbilityDescriptor> of(Abilities abilities) {
+		List<AbilityDescriptor> descriptors = new ArrayList<>(abilities.allAbilities().size());
+		for (Ability ability : abilities.allAbilities()) {
+			AbilityDescriptor descriptor = of(ability);
+			if (descriptor == null) return null;
+			descriptors.add(descriptor);
+		}
+		return descriptors;
+	}
+
+	/**
+	 * Rebuilds a face's abilities from their descriptors.
+	 * @param face The face bearing the abilities.
+	 * @param descriptors The abilities' descriptors.
+	 * @return The face's abilities, or null if any descriptor couldn't be rebuilt.
+	 */
+	public static Abilities rebuild(Card.Face face, Collection<AbilityDescriptor> descriptors) {
+		List<Ability> abilities = new ArrayList<>(descriptors.size());
+		for (AbilityDescriptor descriptor : descriptors) {
+			Ability ability = descriptor.rebuild(face);
+			if (ability == null) return null;
+			abilities.add(ability);
+		}
+		return new Abilities.DefaultAbilities(abilities);
+	}
+
+	public static AbilityDescriptor read(DataInput in) throws IOException {
+		String type = in.readUTF();
+		String[] arguments = new String[in.readUnsignedByte()];
+		for (int i = 0; i < arguments.length; ++i) arguments[i] = in.readUTF();
+		return new AbilityDescriptor(type, arguments);
+	}
+
+	public final String type;
+	private final String[] arguments;
+
+	public AbilityDescriptor(String type, String... arguments) {
+		this.type = Objects.requireNonNull(type);
+		this.arguments = arguments.clone();
+	}
+
+	public List<String> arguments() {
+		return Collections.unmodifiableList(Arrays.asList(arguments));
+	}
+
+	/**
+	 * Rebuilds the described ability.
+	 * @param face The face bearing the ability.
+	 * @return The described ability, or null if its type isn't registered or it can't be rebuilt, e.g. because its
+	 * parser doesn't support descriptors or its arguments are stale.
+	 */
+	public Ability rebuild(Card.Face face) {
+		Ability.Parser parser = REGISTRY.get(type);
+		if (parser == null) return null;
+
+		try {
+			return parser.rebuild(face, arguments.clone());
+		} catch (RuntimeException re) {
+			return null;
+		}
+	}
+
+	public void write(DataOutput out) throws IOException {
+		out.writeUTF(type);
+		out.writeByte(arguments.length);
+		for (String argument : arguments) out.writeUTF(argument);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * type.hashCode() + Arrays.hashCode(arguments);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof AbilityDescriptor)) return false;
+		AbilityDescriptor other = (AbilityDescriptor) obj;
+		return type.equals(other.type) && Arrays.equals(arguments, other.arguments);
+	}
+
+	@Override
+	public String toString() {
+		return type + Arrays.toString(arguments);
+	}
+}
@@ -0,0 +1,162 @@
+package emi.lib.mtg.game.ability;
+
+import emi.lib.mtg.Card;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Dispatches lines of rules text to {@link Ability.Parser}s in two stages. First, a trie of each parser's literal
+ * prefix (e.g. "Partner", "Companion", "A deck can have ") selects the parsers which could possibly match a line.
+ * Second, only those parsers' precompiled patterns are tried against the line, in registration order; the first to
+ * match the whole line wins. Parsers whose patterns don't start with a literal (e.g. ones starting with a card name)
+ * are candidates for every line.
+ *
+ * Parsers are identified by their index in registration order, so there's no need to probe named groups to find out
+ * which parser matched.
+ */
+final class AbilityParsers {
+	private static final String METACHARACTERS = "\\[](){}.*+?^$|";
+
+	static final AbilityParsers INSTANCE;
+
+	static {
+		try {
+			INSTANCE = new AbilityParsers(ServiceLoader.load(Ability.Parser.class));
+		} catch (PatternSyntaxException pse) {
+			pse.printStackTrace();
+			throw new Error(pse);
+		}
+	}
+
+	private static class Node {
+		private final Map<Character, Node> children = new HashMap<>();
+		private final BitSet parsers = new BitSet();
+	}
+
+	private final List<Ability.Parser> parsers;
+	private final Pattern[] patterns;
+	private final Node root;
+	private final BitSet wildcards;
+
+	AbilityParsers(Iterable<Ability.Parser> source) {
+		List<Ability.Parser> parsers = new ArrayList<>();
+		for (Ability.Parser parser : source) parsers.add(parser);
+
+		this.parsers = Collections.unmodifiableList(parsers);
+		this.patterns = new Pattern[parsers.size()];
+		this.root = new Node();
+		this.wildcards = new BitSet();
+
+		for (int i = 0; i < parsers.size(); ++i) {
+			String pattern = parsers.get(i).pattern();
+			patterns[i] = Pattern.compile(pattern);
+
+			String prefix = literalPrefix(pattern);
+			if (prefix.isEmpty()) {
+				wildcards.set(i);
+				continue;
+			}
+
+			Node node = root;
+			for (int c = 0; c < prefix.length(); ++c) node = node.children.computeIfAbsent(prefix.charAt(c), k -> new Node());
+			node.parsers.set(i);
+		}
+	}
+
+	List<Ability.Parser> parsers() {
+		return parsers;
+	}
+
+	/**
+	 * Parses every line of a face's rules text, passing each ability found to the given sink.
+	 * @param face The face to parse.
+	 * @param sink Receives each parsed ability.
+	 */
+	void parse(Card.Face face, Consumer<Ability> sink) {
+		String rules = face.rules();
+		if (rules == null || rules.isEmpty()) return;
+
+		int start = 0;
+		while (start <= rules.length()) {
+			int end = start;
+			while (end < rules.length() && rules.charAt(end) != '\n' && rules.charAt(end) != '\r') ++end;
+
+			if (end > start) parseLine(face, rules.substring(start, end), sink);
+
+			start = end + 1;
+		}
+	}
+
+	private void parseLine(Card.Face face, String line, Consumer<Ability> sink) {
+		BitSet candidates = (BitSet) wildcards.clone();
+
+		Node node = root;
+		for (int i = 0; i < line.length(); ++i) {
+			node = node.children.get(line.charAt(i));
+			if (node == null) break;
+			candidates.or(node.parsers);
+		}
+
+		for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+			Matcher matcher = patterns[i].matcher(line);
+			if (matcher.matches()) {
+				sink.accept(parsers.get(i).make(face, matcher));
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Finds the literal text every match of a pattern must start with. This is deliberately conservative: it stops
+	 * at the first metacharacter, drops a final character made optional by a quantifier, and gives up entirely on
+	 * patterns with top-level alternation.
+	 * @param pattern A regular expression.
+	 * @return The literal prefix of every string matching the pattern. Possibly empty.
+	 */
+	static String literalPrefix(String pattern) {
+		if (hasTopLevelAlternation(pattern)) return "";
+
+		StringBuilder prefix = new StringBuilder();
+		for (int i = 0; i < pattern.length(); ++i) {
+			char c = pattern.charAt(i);
+
+			if (METACHARACTERS.indexOf(c) >= 0) {
+				if ((c == '?' || c == '*' || c == '{') && prefix.length() > 0) prefix.setLength(prefix.length() - 1);
+				break;
+			}
+
+			prefix.append(c);
+		}
+
+		return prefix.toString();
+	}
+
+	private static boolean hasTopLevelAlternation(String pattern) {
+		int depth = 0;
+		boolean inClass = false;
+
+		for (int i = 0; i < pattern.length(); ++i) {
+			char c = pattern.charAt(i);
+
+			if (c == '\\') {
+				++i;
+			} else if (inClass) {
+				if (c == ']') inClass = false;
+			} else if (c == '[') {
+				inClass = true;
+			} else if (c == '(') {
+				++depth;
+			} else if (c == ')') {
+				--depth;
+			} else if (c == '|' && depth == 0) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+}
@@ -28,6 +28,16 @@ public class Companion implements DeckConstructionAbility, StaticAbility {
 		public Companion make(Card.Face face, Matcher match) {
 			return new Companion(face.name(), match.group("companionRequirement"), Companions.COMPANIONS.get(face.name()));
 		}
+
+		@Override
+		public String[] describe(Ability ability) {
+			return new String[] { ((Companion) ability).requirement };
+		}
+
+		@Override
+		public Companion rebuild(Card.Face face, String[] arguments) {
+			return new Companion(face.name(), arguments[0], Companions.COMPANIONS.get(face.name()));
+		}
 	}
 
 	public interface Validator {
@@ -37,6 +37,17 @@ public class CopyLimit implements DeckConstructionAbility {
 		public CopyLimit make(Card.Face face, Matcher match) {
 			return new CopyLimit(NUMBER_WORDS.indexOf(match.group("copyLimitN")), "only".equals(match.group("copyLimitExact")));
 		}
+
+		@Override
+		public String[] describe(Ability ability) {
+			CopyLimit limit = (CopyLimit) ability;
+			return new String[] { Integer.toString(limit.max), Boolean.toString(limit.min == limit.max) };
+		}
+
+		@Override
+		public CopyLimit rebuild(Card.Face face, String[] arguments) {
+			return new CopyLimit(Integer.parseInt(arguments[0]), Boolean.parseBoolean(arguments[1]));
+		}
 	}
 
 	public final int min, max;
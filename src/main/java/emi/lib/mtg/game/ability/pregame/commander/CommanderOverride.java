@@ -45,6 +45,16 @@ public interface CommanderOverride extends DeckConstructionAbility {
 			public CanBeCommander make(Card.Face face, Matcher result) {
 				return new CanBeCommander();
 			}
+
+			@Override
+			public String[] describe(Ability ability) {
+				return new String[0];
+			}
+
+			@Override
+			public CanBeCommander rebuild(Card.Face face, String[] arguments) {
+				return new CanBeCommander();
+			}
 		}
 
 		public CanBeCommander() {
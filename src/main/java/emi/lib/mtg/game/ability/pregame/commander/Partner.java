@@ -35,6 +35,16 @@ public interface Partner extends CommandZoneOverride {
 				public Ability make(Card.Face card, Matcher match) {
 					return new StandardPartner();
 				}
+
+				@Override
+				public String[] describe(Ability ability) {
+					return new String[0];
+				}
+
+				@Override
+				public Ability rebuild(Card.Face card, String[] arguments) {
+					return new StandardPartner();
+				}
 			}
 
 			@Override
@@ -59,6 +69,16 @@ public interface Partner extends CommandZoneOverride {
 				public Ability make(Card.Face card, Matcher match) {
 					return new FriendsForever();
 				}
+
+				@Override
+				public String[] describe(Ability ability) {
+					return new String[0];
+				}
+
+				@Override
+				public Ability rebuild(Card.Face card, String[] arguments) {
+					return new FriendsForever();
+				}
 			}
 
 			@Override
@@ -126,6 +146,16 @@ public interface Partner extends CommandZoneOverride {
 			public Ability make(Card.Face card, Matcher match) {
 				return new PartnerWith(match.group("with"));
 			}
+
+			@Override
+			public String[] describe(Ability ability) {
+				return new String[] { ((PartnerWith) ability).with };
+			}
+
+			@Override
+			public Ability rebuild(Card.Face card, String[] arguments) {
+				return new PartnerWith(arguments[0]);
+			}
 		}
 
 		public final String with;
@@ -206,6 +236,16 @@ public interface Partner extends CommandZoneOverride {
 			public Ability make(Card.Face card, Matcher match) {
 				return new LegendaryPartner();
 			}
+
+			@Override
+			public String[] describe(Ability ability) {
+				return new String[0];
+			}
+
+			@Override
+			public Ability rebuild(Card.Face card, String[] arguments) {
+				return new LegendaryPartner();
+			}
 		}
 
 		@Override
@@ -261,6 +301,16 @@ public interface Partner extends CommandZoneOverride {
 			public Ability make(Card.Face card, Matcher match) {
 				return new ChooseABackground();
 			}
+
+			@Override
+			public String[] describe(Ability ability) {
+				return new String[0];
+			}
+
+			@Override
+			public Ability rebuild(Card.Face card, String[] arguments) {
+				return new ChooseABackground();
+			}
 		}
 
 		@Override
@@ -321,6 +371,16 @@ public interface Partner extends CommandZoneOverride {
 			public Ability make(Card.Face card, Matcher match) {
 				return new DoctorsCompanion();
 			}
+
+			@Override
+			public String[] describe(Ability ability) {
+				return new String[0];
+			}
+
+			@Override
+			public Ability rebuild(Card.Face card, String[] arguments) {
+				return new DoctorsCompanion();
+			}
 		}
 
 		@Override
@@ -382,6 +442,16 @@ public interface Partner extends CommandZoneOverride {
 			public Ability make(Card.Face card, Matcher match) {
 				return new CreateACharacter();
 			}
+
+			@Override
+			public String[] describe(Ability ability) {
+				return new String[0];
+			}
+
+			@Override
+			public Ability rebuild(Card.Face card, String[] arguments) {
+				return new CreateACharacter();
+			}
 		}
 
 		@Override
@@ -0,0 +1,163 @@
+package emi.lib.mtg.game.validation;
+
+import emi.lib.mtg.Card;
+import emi.lib.mtg.enums.Color;
+import emi.lib.mtg.game.Deck;
+import emi.lib.mtg.game.Format;
+import emi.lib.mtg.game.Zone;
+import emi.lib.mtg.util.Multiset;
+
+import java.util.*;
+
+/**
+ * Incrementally tracks a Commander deck's library against its commanders' color identity. {@link Commander#validate}
+ * recomputes every card's color identity (which means rescanning its rules text) on every validation; this keeps the
+ * commanders' combined color identity mask and buckets library cards by their own color identity mask, so adding or
+ * removing a card updates the set of off-identity cards in constant time.
+ *
+ * Each card's color identity is computed once and remembered for the lifetime of the tracker.
+ *
+ * This class is not thread-safe.
+ */
+public class ColorIdentityTracker {
+	private static final int MASKS = 1 << Color.values().length;
+
+	private final Map<Card, Color.Combination> identities = new HashMap<>();
+	private final int[] commanderCounts = new int[MASKS];
+	private final List<Multiset<Card.Print>> library = new ArrayList<>(MASKS);
+
+	private int commanders = 0;
+	private int commanderMask = 0;
+	private int offIdentity = 0;
+
+	public ColorIdentityTracker() {
+		for (int i = 0; i < MASKS; ++i) library.add(new Multiset<>());
+	}
+
+	/**
+	 * Creates a tracker primed with the contents of a deck, in the deck's own format. See
+	 * {@link #ColorIdentityTracker(Deck, Format)}.
+	 *
+	 * @param deck The deck to start tracking.
+	 */
+	public ColorIdentityTracker(Deck deck) {
+		this(deck, deck.format());
+	}
+
+	/**
+	 * Creates a tracker primed with the contents of a deck. Like {@link Commander#validate}, cards in the command zone
+	 * are treated as commanders unless they're companions whose requirements the deck satisfies; cards in the library
+	 * are tracked against them. Further changes to the deck must be reported to this tracker.
+	 *
+	 * @param deck The deck to start tracking.
+	 * @param format The format in which the deck will be played, against which companion requirements are checked.
+	 */
+	public ColorIdentityTracker(Deck deck, Format format) {
+		this();
+
+		Collection<? extends Card.Print> cmdZone = deck.cards(Zone.Command);
+		if (cmdZone != null) {
+			for (Card.Print pr : cmdZone) {
+				if (!Companions.isSatisfiedCompanion(pr, deck, format)) addCommander(pr);
+			}
+		}
+
+		Collection<? extends Card.Print> libZone = deck.cards(Zone.Library);
+		if (libZone != null) {
+			for (Card.Print pr : libZone) add(pr);
+		}
+	}
+
+	/**
+	 * Returns the color identity of a card, computing it only the first time this tracker sees that card.
+	 * @param card The card whose color identity to get.
+	 * @return The card's color identity.
+	 */
+	public Color.Combination identity(Card card) {
+		return identities.computeIfAbsent(card, Card::colorIdentity);
+	}
+
+	/**
+	 * Returns the combined color identity of the deck's commanders. Like {@link Commander#validate}, if there are no
+	 * commanders, every color is allowed.
+	 * @return The combined color identity of the deck's commanders.
+	 */
+	public Color.Combination identity() {
+		return commanders == 0 ? Color.Combination.FiveColorC : Color.Combination.byMask(commanderMask);
+	}
+
+	public void addCommander(Card.Print pr) {
+		int mask = Color.Combination.mask(identity(pr.card()));
+		++commanderCounts[mask];
+		++commanders;
+		updateCommanderMask();
+	}
+
+	public boolean removeCommander(Card.Print pr) {
+		int mask = Color.Combination.mask(identity(pr.card()));
+		if (commanderCounts[mask] == 0) return false;
+		--commanderCounts[mask];
+		--commanders;
+		updateCommanderMask();
+		return true;
+	}
+
+	public void add(Card.Print pr) {
+		int mask = Color.Combination.mask(identity(pr.card()));
+		library.get(mask).add(pr);
+		if (isOff(mask)) ++offIdentity;
+	}
+
+	public boolean remove(Card.Print pr) {
+		int mask = Color.Combination.mask(identity(pr.card()));
+		if (!library.get(mask).remove(pr)) return false;
+		if (isOff(mask)) --offIdentity;
+		return true;
+	}
+
+	/**
+	 * @param pr A card print.
+	 * @return True if the given card falls outside the commanders' color identity.
+	 */
+	public boolean isOffIdentity(Card.Print pr) {
+		return isOff(Color.Combination.mask(identity(pr.card())));
+	}
+
+	/**
+	 * @return The number of library cards (counting duplicates) which fall outside the commanders' color identity.
+	 */
+	public int offIdentityCount() {
+		return offIdentity;
+	}
+
+	/**
+	 * Collects the library cards which fall outside the commanders' color identity. Only the buckets of off-identity
+	 * color masks are visited, so this costs time proportional to the number of offending cards.
+	 * @return The library cards, including duplicates, which contain colors not in the commanders' color identity.
+	 */
+	public Collection<Card.Print> offIdentity() {
+		List<Card.Print> off = new ArrayList<>(offIdentity);
+		for (int mask = 0; mask < MASKS; ++mask) {
+			if (isOff(mask)) off.addAll(library.get(mask));
+		}
+		return off;
+	}
+
+	private boolean isOff(int mask) {
+		return commanders > 0 && (mask & ~commanderMask) != 0;
+	}
+
+	private void updateCommanderMask() {
+		int mask = 0;
+		for (int i = 0; i < MASKS; ++i) {
+			if (commanderCounts[i] > 0) mask |= i;
+		}
+		commanderMask = mask;
+
+		int off = 0;
+		for (int i = 0; i < MASKS; ++i) {
+			if (isOff(i)) off += library.get(i).size();
+		}
+		offIdentity = off;
+	}
+}
@@ -10,7 +10,6 @@ import emi.lib.mtg.game.Format;
 import emi.lib.mtg.game.Zone;
 import emi.lib.mtg.game.ability.pregame.commander.CommandZoneOverride;
 import emi.lib.mtg.game.ability.pregame.commander.CommanderOverride;
-import emi.lib.mtg.game.ability.pregame.Companion;
 
 import java.util.*;
 
@@ -23,7 +22,7 @@ public class Commander implements Format.Validator {
 
 		// This is a slight hack, since we don't need to evaluate the card instance in the context of the deck for this
 		// particular ability.
-		if (front.abilities().ofType(CommanderOverride.CanBeCommander.class).findAny().isPresent()) return true;
+		if (!front.abilities().listOf(CommanderOverride.CanBeCommander.class).isEmpty()) return true;
 
 		TypeLine type = front.type();
 		return type.is(Supertype.Legendary) && type.is(CardType.Creature);
@@ -34,7 +33,7 @@ public class Commander implements Format.Validator {
 		if (front == null) return false; // TODO: Could a split card be allowed to be a commander?
 
 		CommanderOverride.CheckResult check = CommanderOverride.CheckResult.Indeterminate;
-		for (CommanderOverride override : front.abilities().ofType(CommanderOverride.class).toArray(CommanderOverride[]::new)) {
+		for (CommanderOverride override : front.abilities().listOf(CommanderOverride.class)) {
 			CommanderOverride.CheckResult thisCheck = override.check(pr, deck, result);
 
 			switch (thisCheck) {
@@ -110,18 +109,15 @@ public class Commander implements Format.Validator {
 			Card.Face front = pr.card().front();
 
 			if (front != null) {
-				// N.B. This can't be .anyMatch or any other short-circuiting terminal operation.
-				if (front.abilities().ofType(Companion.class)
-						.filter(c -> c.check(pr, deck, format, result))
-						.count() > 0) {
+				if (Companions.isSatisfiedCompanion(pr, deck, format, result)) {
 					satisfiedCompanions.add(pr);
 				} else {
 					commanders.add(pr);
 				}
 
-				final Card.Print fpr = pr;
-				front.abilities().ofType(CommandZoneOverride.class)
-						.forEach(override -> overrides.computeIfAbsent(fpr, k -> new HashMap<>()).computeIfAbsent(override.constraintFamily(), k -> new HashSet<>()).add(override));
+				for (CommandZoneOverride override : front.abilities().listOf(CommandZoneOverride.class)) {
+					overrides.computeIfAbsent(pr, k -> new HashMap<>()).computeIfAbsent(override.constraintFamily(), k -> new HashSet<>()).add(override);
+				}
 			}
 		}
 
@@ -0,0 +1,244 @@
+package emi.lib.mtg.game.validation;
+
+import emi.lib.mtg.Card;
+import emi.lib.mtg.DataSource;
+import emi.lib.mtg.TypeLine;
+import emi.lib.mtg.enums.CardType;
+import emi.lib.mtg.enums.Color;
+import emi.lib.mtg.enums.Supertype;
+import emi.lib.mtg.game.Deck;
+import emi.lib.mtg.game.Format;
+import emi.lib.mtg.game.Zone;
+import emi.lib.mtg.game.ability.Ability;
+import emi.lib.mtg.game.ability.pregame.Companion;
+import emi.lib.mtg.game.ability.pregame.commander.Partner;
+
+import java.util.*;
+
+/**
+ * Answers "which commanders could lead this deck?", "which cards could partner with this commander?" and "which
+ * companions could this deck have?" across an entire card pool. Rather than running {@link Format#validate} once per
+ * candidate, the card pool is indexed once up front: commanders are bucketed by color identity, and cards are grouped
+ * by the {@link Partner} abilities they have or can be paired with. Queries then only visit plausible candidates.
+ *
+ * Results are ordered so that candidates adding the fewest colors beyond what the deck needs come first, then by name.
+ *
+ * An index is immutable once built and can be shared between threads. It should be rebuilt if the data source reloads.
+ */
+public class CommanderSearch {
+	private static final int MASKS = 1 << Color.values().length;
+
+	private final Map<Card, Integer> identities = new HashMap<>();
+	private final Map<String, Card> byName = new HashMap<>();
+	private final List<List<Card>> commandersByIdentity = new ArrayList<>(MASKS);
+	private final Map<Class<? extends Ability>, List<Card>> byAbility = new HashMap<>();
+	private final List<Card> backgrounds = new ArrayList<>();
+	private final List<Card> doctors = new ArrayList<>();
+	private final List<Card> creatures = new ArrayList<>();
+	private final List<Card> nonlegendaryCreatures = new ArrayList<>();
+
+	public CommanderSearch(DataSource source) {
+		this(source.cards());
+	}
+
+	public CommanderSearch(Collection<? extends Card> cards) {
+		for (int i = 0; i < MASKS; ++i) commandersByIdentity.add(new ArrayList<>());
+
+		for (Card card : cards) {
+			int identity = Color.Combination.mask(card.colorIdentity());
+			identities.put(card, identity);
+			byName.putIfAbsent(card.name(), card);
+
+			if (Commander.isCommander(card)) commandersByIdentity.get(identity).add(card);
+
+			Card.Face front = card.front();
+			if (front == null) continue;
+
+			for (Ability ability : front.abilities().allAbilities()) {
+				if (ability instanceof Partner || ability instanceof Companion) {
+					byAbility.computeIfAbsent(ability.getClass(), k -> new ArrayList<>()).add(card);
+				}
+			}
+
+			TypeLine type = front.type();
+			if (isBackground(type)) backgrounds.add(card);
+			if (isDoctor(type)) doctors.add(card);
+			if (type.is(CardType.Creature)) {
+				creatures.add(card);
+				if (!type.is(Supertype.Legendary)) nonlegendaryCreatures.add(card);
+			}
+		}
+	}
+
+	private static boolean isBackground(TypeLine type) {
+		return type.is(Supertype.Legendary) && type.is(CardType.Enchantment) && type.is("Background");
+	}
+
+	private static boolean isDoctor(TypeLine type) {
+		// Mirrors Partner.DoctorsCompanion.
+		return type.is(Supertype.Legendary) && type.is(CardType.Creature)
+				&& type.is("Time") && type.is("Lord") && type.is("Doctor") && type.subtypes().size() == 3;
+	}
+
+	private static boolean legal(Card card, Format format) {
+		switch (card.legality(format)) {
+			case Banned:
+			case NotLegal:
+				return false;
+			default:
+				return true;
+		}
+	}
+
+	private int identity(Card card) {
+		Integer identity = identities.get(card);
+		return identity != null ? identity : Color.Combination.mask(card.colorIdentity());
+	}
+
+	private int identity(Collection<? extends Card.Print> prints) {
+		int mask = 0;
+		if (prints != null) {
+			for (Card.Print pr : prints) mask |= identity(pr.card());
+		}
+		return mask;
+	}
+
+	private List<Card> byAbility(Class<? extends Ability> type) {
+		return byAbility.getOrDefault(type, Collections.emptyList());
+	}
+
+	private static void addCommanders(java.util.Set<Card> candidates, Collection<Card> cards) {
+		for (Card card : cards) {
+			if (Commander.isCommander(card)) candidates.add(card);
+		}
+	}
+
+	private Comparator<Card> ranking(int required) {
+		return Comparator.<Card>comparingInt(c -> Integer.bitCount(identity(c) & ~required))
+				.thenComparing(Card::name);
+	}
+
+	/**
+	 * Finds every card which could be the sole commander of a deck containing the given library.
+	 * @param deck The deck in question. Only its library is considered.
+	 * @param format The format in which the deck will be played.
+	 * @return Every legal commander whose color identity covers the deck's library, best fit first.
+	 */
+	public List<Card> commanders(Deck deck, Format format) {
+		int required = identity(deck.cards(Zone.Library));
+
+		List<Card> results = new ArrayList<>();
+		for (int mask = 0; mask < MASKS; ++mask) {
+			if ((mask & required) != required) continue;
+
+			for (Card card : commandersByIdentity.get(mask)) {
+				if (legal(card, format)) results.add(card);
+			}
+		}
+
+		results.sort(ranking(required));
+		return results;
+	}
+
+	/**
+	 * Finds every card which could be designated as a second commander alongside the given one, by way of Partner,
+	 * Partner with, Friends forever, Choose a Background, Doctor's companion, Legendary partner or Create a
+	 * Character, such that the pair's combined color identity covers the deck's library.
+	 * @param commander The commander to pair with.
+	 * @param deck The deck in question. Only its library is considered.
+	 * @param format The format in which the deck will be played.
+	 * @return Every legal partner for the commander which suits the deck, best fit first.
+	 */
+	public List<Card> partners(Card commander, Deck deck, Format format) {
+		Card.Face front = commander.front();
+		if (front == null) return Collections.emptyList();
+
+		java.util.Set<Card> candidates = new LinkedHashSet<>();
+		TypeLine type = front.type();
+
+		if (Commander.isCommander(commander)) {
+			for (Ability ability : front.abilities().allAbilities()) {
+				if (ability instanceof Partner.PartnerGroup) {
+					addCommanders(candidates, byAbility(ability.getClass()));
+				} else if (ability instanceof Partner.PartnerWith) {
+					Card partner = byName.get(((Partner.PartnerWith) ability).with);
+					Partner.PartnerWith reciprocal = partner != null && partner.front() != null ? partner.front().abilities().only(Partner.PartnerWith.class) : null;
+					if (reciprocal != null && reciprocal.with.equals(commander.name())) addCommanders(candidates, Collections.singleton(partner));
+				} else if (ability instanceof Partner.ChooseABackground) {
+					candidates.addAll(backgrounds);
+				} else if (ability instanceof Partner.DoctorsCompanion) {
+					candidates.addAll(doctors);
+				} else if (ability instanceof Partner.LegendaryPartner) {
+					candidates.addAll(creatures);
+				}
+			}
+
+			// Abilities on the other card which would accept this one.
+			if (isDoctor(type)) addCommanders(candidates, byAbility(Partner.DoctorsCompanion.class));
+		}
+
+		if (type.is(CardType.Creature)) addCommanders(candidates, byAbility(Partner.LegendaryPartner.class));
+
+		if (isBackground(type)) {
+			addCommanders(candidates, byAbility(Partner.ChooseABackground.class));
+			if (front.abilities().only(Partner.CreateACharacter.class) != null) candidates.addAll(nonlegendaryCreatures);
+		}
+
+		if (type.is(CardType.Creature) && !type.is(Supertype.Legendary)) {
+			for (Card background : byAbility(Partner.CreateACharacter.class)) {
+				if (isBackground(background.front().type())) candidates.add(background);
+			}
+		}
+
+		candidates.remove(commander);
+
+		int required = identity(deck.cards(Zone.Library));
+		int have = identity(commander);
+
+		List<Card> results = new ArrayList<>();
+		for (Card candidate : candidates) {
+			if (((have | identity(candidate)) & required) != required) continue;
+			if (!legal(candidate, format)) continue;
+			results.add(candidate);
+		}
+
+		results.sort(ranking(required | have));
+		return results;
+	}
+
+	/**
+	 * Finds every companion whose requirement the deck satisfies. If the format uses a command zone and the deck has
+	 * commanders, only companions within the commanders' color identity are returned.
+	 * @param deck The deck in question.
+	 * @param format The format in which the deck will be played.
+	 * @return Every legal companion which suits the deck, best fit first.
+	 */
+	public List<Card> companions(Deck deck, Format format) {
+		java.util.Set<String> satisfied = new CompanionEvaluator().satisfied(deck, format);
+
+		int allowed = MASKS - 1;
+		if (format.deckZones().contains(Zone.Command) && deck.cards(Zone.Command) != null) {
+			int commanders = 0;
+			boolean any = false;
+			for (Card.Print pr : deck.cards(Zone.Command)) {
+				if (Companions.isSatisfiedCompanion(pr, deck, format)) continue;
+				commanders |= identity(pr.card());
+				any = true;
+			}
+			if (any) allowed = commanders;
+		}
+
+		int required = identity(deck.cards(Zone.Library));
+
+		List<Card> results = new ArrayList<>();
+		for (Card card : byAbility(Companion.class)) {
+			if (!satisfied.contains(card.name())) continue;
+			if ((identity(card) & ~allowed) != 0) continue;
+			if (!legal(card, format)) continue;
+			results.add(card);
+		}
+
+		results.sort(ranking(required));
+		return results;
+	}
+}
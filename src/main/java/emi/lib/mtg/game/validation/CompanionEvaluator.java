@@ -0,0 +1,181 @@
+package emi.lib.mtg.game.validation;
+
+import emi.lib.mtg.Card;
+import emi.lib.mtg.Mana;
+import emi.lib.mtg.TypeLine;
+import emi.lib.mtg.enums.CardType;
+import emi.lib.mtg.game.Deck;
+import emi.lib.mtg.game.Format;
+import emi.lib.mtg.game.Zone;
+
+import java.util.*;
+
+/**
+ * Evaluates every known companion requirement against a deck in a single pass over the starting deck. Each of the
+ * validators in {@link Companions} streams the whole starting deck on its own; this instead computes the features
+ * those validators care about once per card and folds all of the requirements together.
+ *
+ * Unlike the validators in {@link Companions}, this doesn't explain why a requirement failed. It's meant for questions
+ * like "which companions could this deck have?"; once a companion is chosen, {@link Companions} gives the details.
+ */
+public class CompanionEvaluator {
+	/**
+	 * The features of a single card which any companion requirement depends on. These don't depend on the deck, so
+	 * they can be computed once per card and reused.
+	 */
+	public static class Features {
+		public final Card card;
+		public final String name;
+		public final boolean land;
+		public final boolean evenManaValue, oddManaValue;
+		public final boolean duplicateSymbols;
+		public final boolean kaheeraType;
+		public final boolean manaValueAtLeastThree;
+		public final boolean permanentManaValueAboveTwo;
+		public final boolean needsActivatedAbility, hasActivatedAbility;
+		public final EnumSet<CardType> cardTypes;
+
+		public Features(Card card) {
+			this.card = card;
+			this.name = card.name();
+
+			Card.Face front = card.front();
+			TypeLine type = front != null ? front.type() : null;
+
+			this.land = type != null && type.is(CardType.Land);
+
+			double cmc = card.manaCost().value();
+			boolean integral = Double.isFinite(cmc) && Math.floor(cmc) == cmc;
+			this.evenManaValue = integral && ((int) cmc % 2) == 0;
+			this.oddManaValue = integral && ((int) cmc % 2) == 1;
+			this.manaValueAtLeastThree = cmc >= 3;
+
+			boolean dupes = false;
+			Set<Mana.Symbol> seen = new HashSet<>();
+			for (Mana.Symbol sym : card.manaCost().symbols()) {
+				if (!seen.add(sym)) {
+					dupes = true;
+					break;
+				}
+			}
+			this.duplicateSymbols = dupes;
+
+			boolean cute = false;
+			if (type != null && type.cardTypes().contains(CardType.Creature)) {
+				for (String subtype : type.subtypes()) {
+					if (Companions.KAHEERA_SUBTYPES.contains(subtype)) {
+						cute = true;
+						break;
+					}
+				}
+			}
+			this.kaheeraType = cute;
+
+			boolean permanent = type != null && type.isPermanent();
+			this.permanentManaValueAboveTwo = permanent && front.manaValue() > 2;
+
+			this.needsActivatedAbility = permanent && !(type.is(CardType.Land) && (
+					type.is("Plains") ||
+					type.is("Island") ||
+					type.is("Swamp") ||
+					type.is("Mountain") ||
+					type.is("Forest")));
+			this.hasActivatedAbility = needsActivatedAbility && Companions.ACTIVATED_ABILITY_PATTERN.matcher(front.rules()).find();
+
+			EnumSet<CardType> types = EnumSet.noneOf(CardType.class);
+			for (Card.Face face : card.faces()) types.addAll(face.type().cardTypes());
+			this.cardTypes = types;
+		}
+
+		public boolean isCreature() {
+			Card.Face front = card.front();
+			return front != null && front.type().cardTypes().contains(CardType.Creature);
+		}
+	}
+
+	private final Map<Card, Features> features;
+
+	/**
+	 * Creates an evaluator which remembers the features of every card it sees, so repeated evaluations (e.g. while a
+	 * deck is being edited) only compute features for new cards.
+	 */
+	public CompanionEvaluator() {
+		this.features = new HashMap<>();
+	}
+
+	public Features features(Card card) {
+		return features.computeIfAbsent(card, Features::new);
+	}
+
+	/**
+	 * Evaluates every companion requirement against the given deck.
+	 * @param deck The deck to evaluate.
+	 * @param format The format the deck is being built for. Only used for Yorion's deck size requirement.
+	 * @return A map from each companion's name to whether or not the deck satisfies that companion's requirement.
+	 */
+	public Map<String, Boolean> evaluate(Deck deck, Format format) {
+		boolean gyruda = true, jegantha = true, kaheera = true, keruga = true, lurrus = true, lutri = true,
+				obosh = true, umori = true, zirda = true;
+
+		Set<String> nonlandNames = new HashSet<>();
+		EnumSet<CardType> sharedType = EnumSet.noneOf(CardType.class);
+
+		for (Iterator<Card.Print> iter = Companions.startDeckStream(deck).iterator(); iter.hasNext(); ) {
+			Features f = features(iter.next().card());
+
+			gyruda &= f.evenManaValue;
+			jegantha &= !f.duplicateSymbols;
+			kaheera &= !f.isCreature() || f.kaheeraType;
+			keruga &= f.manaValueAtLeastThree || f.land;
+			lurrus &= !f.permanentManaValueAboveTwo;
+			zirda &= !f.needsActivatedAbility || f.hasActivatedAbility;
+
+			if (f.land) continue;
+
+			lutri &= nonlandNames.add(f.name);
+			obosh &= f.oddManaValue;
+
+			if (sharedType.isEmpty()) {
+				sharedType.addAll(f.cardTypes);
+			} else {
+				EnumSet<CardType> intersection = EnumSet.copyOf(sharedType);
+				intersection.retainAll(f.cardTypes);
+
+				if (intersection.isEmpty()) {
+					umori = false;
+				} else {
+					sharedType.retainAll(intersection);
+				}
+			}
+		}
+
+		Collection<? extends Card.Print> library = deck.cards(Zone.Library);
+		boolean yorion = library != null && library.size() >= format.cardCount.zones.get(Zone.Library).minCards + 20;
+
+		Map<String, Boolean> results = new HashMap<>();
+		results.put(Companions.GYRUDA, gyruda);
+		results.put(Companions.JEGANTHA, jegantha);
+		results.put(Companions.KAHEERA, kaheera);
+		results.put(Companions.KERUGA, keruga);
+		results.put(Companions.LURRUS, lurrus);
+		results.put(Companions.LUTRI, lutri);
+		results.put(Companions.OBOSH, obosh);
+		results.put(Companions.UMORI, umori);
+		results.put(Companions.YORION, yorion);
+		results.put(Companions.ZIRDA, zirda);
+		return Collections.unmodifiableMap(results);
+	}
+
+	/**
+	 * @param deck The deck to evaluate.
+	 * @param format The format the deck is being built for.
+	 * @return The names of all companions whose requirements the deck satisfies.
+	 */
+	public Set<String> satisfied(Deck deck, Format format) {
+		Set<String> satisfied = new HashSet<>();
+		evaluate(deck, format).forEach((name, ok) -> {
+			if (ok) satisfied.add(name);
+		});
+		return satisfied;
+	}
+}
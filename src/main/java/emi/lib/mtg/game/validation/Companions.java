@@ -18,35 +18,76 @@ import java.util.stream.Stream;
 public class Companions implements Format.Validator {
 	public static final Companions INSTANCE = new Companions();
 
+	public static final String GYRUDA = "Gyruda, Doom of Depths";
+	public static final String JEGANTHA = "Jegantha, the Wellspring";
+	public static final String KAHEERA = "Kaheera, the Orphanguard";
+	public static final String KERUGA = "Keruga, the Macrosage";
+	public static final String LURRUS = "Lurrus of the Dream-Den";
+	public static final String LUTRI = "Lutri, the Spellchaser";
+	public static final String OBOSH = "Obosh, the Preypiercer";
+	public static final String UMORI = "Umori, the Collector";
+	public static final String YORION = "Yorion, Sky Nomad";
+	public static final String ZIRDA = "Zirda, the Dawnwaker";
+
 	public static final Map<String, Companion.Validator> COMPANIONS = companions();
 
 	private static Map<String, Companion.Validator> companions() {
 		Map<String, Companion.Validator> map = new HashMap<>();
 
-		map.put("Gyruda, Doom of Depths", Companions::gyruda);
-		map.put("Jegantha, the Wellspring", Companions::jegantha);
-		map.put("Kaheera, the Orphanguard", Companions::kaheera);
-		map.put("Keruga, the Macrosage", Companions::keruga);
-		map.put("Lurrus of the Dream-Den", Companions::lurrus);
-		map.put("Lutri, the Spellchaser", Companions::lutri);
-		map.put("Obosh, the Preypiercer", Companions::obosh);
-		map.put("Umori, the Collector", Companions::umori);
-		map.put("Yorion, Sky Nomad", Companions::yorion);
-		map.put("Zirda, the Dawnwaker", Companions::zirda);
+		map.put(GYRUDA, Companions::gyruda);
+		map.put(JEGANTHA, Companions::jegantha);
+		map.put(KAHEERA, Companions::kaheera);
+		map.put(KERUGA, Companions::keruga);
+		map.put(LURRUS, Companions::lurrus);
+		map.put(LUTRI, Companions::lutri);
+		map.put(OBOSH, Companions::obosh);
+		map.put(UMORI, Companions::umori);
+		map.put(YORION, Companions::yorion);
+		map.put(ZIRDA, Companions::zirda);
 
 		return Collections.unmodifiableMap(map);
 	}
 
 	public static boolean isCompanion(Card.Print pr) {
 		if (pr.card().front() == null) return false;
-		return pr.card().front().abilities().ofType(Companion.class).findAny().isPresent();
+		return !pr.card().front().abilities().listOf(Companion.class).isEmpty();
+	}
+
+	/**
+	 * Determines whether a card in the command zone serves as the deck's companion rather than as a commander: it must
+	 * have a companion ability whose requirement the deck satisfies. Unsatisfied companions count as commanders.
+	 * Every companion ability is checked, so each can report its problems to the result.
+	 * @param pr The command zone card in question.
+	 * @param deck The deck containing it.
+	 * @param format The format in which the deck will be played.
+	 * @param result The result to which companion requirements' problems are reported.
+	 * @return True if the card is a satisfied companion.
+	 */
+	public static boolean isSatisfiedCompanion(Card.Print pr, Deck deck, Format format, Result result) {
+		Card.Face front = pr.card().front();
+		if (front == null) return false;
+
+		// N.B. This can't short-circuit; every companion ability needs to be checked.
+		boolean satisfied = false;
+		for (Companion companion : front.abilities().listOf(Companion.class)) {
+			satisfied |= companion.check(pr, deck, format, result);
+		}
+		return satisfied;
+	}
+
+	/**
+	 * Determines whether a card in the command zone serves as the deck's companion rather than as a commander. See
+	 * {@link #isSatisfiedCompanion(Card.Print, Deck, Format, Result)}; problems are discarded.
+	 */
+	public static boolean isSatisfiedCompanion(Card.Print pr, Deck deck, Format format) {
+		return isSatisfiedCompanion(pr, deck, format, new Result());
 	}
 
 	private static boolean notCompanion(Card.Print pr) {
 		return !isCompanion(pr);
 	}
 
-	private static Stream<Card.Print> startDeckStream(Deck deck) {
+	static Stream<Card.Print> startDeckStream(Deck deck) {
 		if (deck.cards(Zone.Library) == null && deck.cards(Zone.Command) == null) return Stream.empty();
 		if (deck.cards(Zone.Command) == null) return deck.cards(Zone.Library).stream().map(x -> (Card.Print) x);
 		if (deck.cards(Zone.Library) == null) return deck.cards(Zone.Command).stream().filter(Companions::notCompanion).map(x -> (Card.Print) x);
@@ -90,7 +131,7 @@ public class Companions implements Format.Validator {
 		return allUnique;
 	}
 
-	private static final Set<String> KAHEERA_SUBTYPES = kaheeraSubtypes();
+	static final Set<String> KAHEERA_SUBTYPES = kaheeraSubtypes();
 
 	private static Set<String> kaheeraSubtypes() {
 		Set<String> tmp = new HashSet<>();
@@ -267,7 +308,7 @@ public class Companions implements Format.Validator {
 		return true;
 	}
 
-	private static final Pattern ACTIVATED_ABILITY_PATTERN = Pattern.compile("(?m)^(?:(?:(?:Equip|Cycling)[— ])|[^\"]+: .+$)");
+	static final Pattern ACTIVATED_ABILITY_PATTERN = Pattern.compile("(?m)^(?:(?:(?:Equip|Cycling)[— ])|[^\"]+: .+$)");
 
 	public static boolean zirda(Deck deck, Format format, Result result) {
 		boolean allActive = true;
@@ -311,7 +352,7 @@ public class Companions implements Format.Validator {
 			Card.Face front = pr.card().front();
 			if (front == null) continue;
 
-			front.abilities().ofType(Companion.class).forEach(a -> a.check(pr, deck, format, result));
+			for (Companion companion : front.abilities().listOf(Companion.class)) companion.check(pr, deck, format, result);
 		}
 
 		return result;
@@ -0,0 +1,276 @@
+package emi.lib.mtg.img;
+
+import emi.lib.mtg.Card;
+import emi.lib.mtg.ImageSource;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * An asynchronous front end to an {@link ImageSource}. Requests are queued in priority lanes and handed to an executor,
+ * with at most a fixed number of requests against the source running at once; the rest wait in the queue rather than
+ * each tying up a thread. Results are delivered via {@link CompletableFuture}s.
+ *
+ * Cancelling a returned future (e.g. because the card it was for scrolled out of view) removes its request from the
+ * queue if it hasn't started yet. Requests which have already started run to completion, but their results are
+ * discarded.
+ *
+ * To try several sources in turn, see {@link Composite}.
+ */
+public class AsyncImageLoader {
+	/**
+	 * The lanes in which requests are queued. Requests in earlier lanes are always started before those in later lanes;
+	 * within a lane, requests are started in the order they were made.
+	 */
+	public enum Priority {
+		/** Images the user is looking at right now. */
+		Visible,
+
+		/** Images which will probably be needed soon. */
+		Normal,
+
+		/** Images which might be needed eventually, e.g. the next page of a grid. */
+		Prefetch,
+	}
+
+	private interface Loader {
+		BufferedImage load() throws IOException;
+	}
+
+	private static final class Task implements Comparable<Task> {
+		private final Priority priority;
+		private final long sequence;
+		private final Loader loader;
+		private final CompletableFuture<BufferedImage> future = new CompletableFuture<>();
+
+		public Task(Priority priority, long sequence, Loader loader) {
+			this.priority = priority;
+			this.sequence = sequence;
+			this.loader = loader;
+		}
+
+		@Override
+		public int compareTo(Task other) {
+			int cmp = priority.compareTo(other.priority);
+			return cmp != 0 ? cmp : Long.compare(sequence, other.sequence);
+		}
+	}
+
+	private static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+		private final AtomicInteger counter = new AtomicInteger(0);
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread th = new Thread(r, "LibMtg-ImageLoad-" + counter.getAndIncrement());
+			th.setDaemon(true);
+			return th;
+		}
+	});
+
+	private final ImageSource source;
+	private final Executor executor;
+	private final int maxConcurrency;
+
+	private final PriorityBlockingQueue<Task> queue = new PriorityBlockingQueue<>();
+	private final AtomicLong sequence = new AtomicLong(0);
+	private final AtomicInteger running = new AtomicInteger(0);
+
+	/**
+	 * Creates an asynchronous loader running on a shared pool of daemon threads.
+	 * @param source The image source to load from.
+	 * @param maxConcurrency The maximum number of requests to run against the source at once.
+	 */
+	public AsyncImageLoader(ImageSource source, int maxConcurrency) {
+		this(source, DEFAULT_EXECUTOR, maxConcurrency);
+	}
+
+	/**
+	 * Creates an asynchronous loader.
+	 * @param source The image source to load from.
+	 * @param executor The executor on which to run requests.
+	 * @param maxConcurrency The maximum number of requests to run against the source at once.
+	 */
+	public AsyncImageLoader(ImageSource source, Executor executor, int maxConcurrency) {
+		if (maxConcurrency <= 0) throw new IllegalArgumentException("maxConcurrency must be positive");
+		this.source = Objects.requireNonNull(source);
+		this.executor = Objects.requireNonNull(executor);
+		this.maxConcurrency = maxConcurrency;
+	}
+
+	public ImageSource source() {
+		return source;
+	}
+
+	/**
+	 * @return The number of requests waiting to start.
+	 */
+	public int queued() {
+		return queue.size();
+	}
+
+	/**
+	 * @return The number of requests currently running against the source.
+	 */
+	public int running() {
+		return running.get();
+	}
+
+	public CompletableFuture<BufferedImage> open(Card.Print print, Priority priority) {
+		return submit(priority, () -> source.open(print));
+	}
+
+	public CompletableFuture<BufferedImage> open(Card.Print.Face facePrint, Priority priority) {
+		return submit(priority, () -> source.open(facePrint));
+	}
+
+	public CompletableFuture<BufferedImage> open(Card card, Priority priority) {
+		return submit(priority, () -> source.open(card));
+	}
+
+	public CompletableFuture<BufferedImage> open(Card card, Card.Face face, Priority priority) {
+		return submit(priority, () -> source.open(card, face));
+	}
+
+	private CompletableFuture<BufferedImage> submit(Priority priority, Loader loader) {
+		Task task = new Task(priority, sequence.getAndIncrement(), loader);
+		task.future.whenComplete((img, err) -> {
+			if (task.future.isCancelled()) queue.remove(task);
+		});
+
+		queue.add(task);
+		drain();
+		return task.future;
+	}
+
+	private void drain() {
+		while (!queue.isEmpty()) {
+			int current = running.get();
+			if (current >= maxConcurrency) return;
+			if (!running.compareAndSet(current, current + 1)) continue;
+
+			try {
+				executor.execute(this::work);
+			} catch (RejectedExecutionException ree) {
+				// Workers still running will get to the queue; if there are none, nothing ever will, so fail what's left.
+				if (running.decrementAndGet() == 0) {
+					Task task;
+					while ((task = queue.poll()) != null) task.future.completeExceptionally(ree);
+				}
+				return;
+			}
+		}
+	}
+
+	private void work() {
+		try {
+			Task task;
+			while ((task = queue.poll()) != null) {
+				if (task.future.isDone()) continue;
+
+				try {
+					task.future.complete(task.loader.load());
+				} catch (Throwable t) {
+					task.future.completeExceptionally(t);
+				}
+			}
+		} finally {
+			running.decrementAndGet();
+		}
+
+		// A request may have arrived after we found the queue empty, but before we stopped counting as running.
+		drain();
+	}
+
+	/**
+	 * Tries several image sources in turn, in descending order of {@link ImageSource#priority()}, until one finds an
+	 * image. Each attempt is chained onto the previous one's future, so no thread waits on a source while another is
+	 * tried. Cancelling a returned future cancels whichever attempt is in progress.
+	 *
+	 * If no source finds an image, the future completes with null, or exceptionally with the first error any source
+	 * encountered.
+	 */
+	public static class Composite {
+		private final List<AsyncImageLoader> loaders;
+
+		public Composite(Collection<? extends ImageSource> sources, int maxConcurrencyPerSource) {
+			this(sources, DEFAULT_EXECUTOR, maxConcurrencyPerSource);
+		}
+
+		public Composite(Collection<? extends ImageSource> sources, Executor executor, int maxConcurrencyPerSource) {
+			List<AsyncImageLoader> loaders = new ArrayList<>(sources.size());
+			for (ImageSource source : sources) loaders.add(new AsyncImageLoader(source, executor, maxConcurrencyPerSource));
+			loaders.sort(Comparator.comparingInt((AsyncImageLoader l) -> l.source.priority()).reversed());
+			this.loaders = Collections.unmodifiableList(loaders);
+		}
+
+		public List<AsyncImageLoader> loaders() {
+			return loaders;
+		}
+
+		public CompletableFuture<BufferedImage> open(Card.Print print, Priority priority) {
+			return attempt(l -> l.open(print, priority));
+		}
+
+		public CompletableFuture<BufferedImage> open(Card.Print.Face facePrint, Priority priority) {
+			return attempt(l -> l.open(facePrint, priority));
+		}
+
+		public CompletableFuture<BufferedImage> open(Card card, Priority priority) {
+			return attempt(l -> l.open(card, priority));
+		}
+
+		public CompletableFuture<BufferedImage> open(Card card, Card.Face face, Priority priority) {
+			return attempt(l -> l.open(card, face, priority));
+		}
+
+		private CompletableFuture<BufferedImage> attempt(Function<AsyncImageLoader, CompletableFuture<BufferedImage>> request) {
+			CompletableFuture<BufferedImage> result = new CompletableFuture<>();
+			AtomicReference<CompletableFuture<BufferedImage>> current = new AtomicReference<>();
+			AtomicReference<Throwable> firstError = new AtomicReference<>();
+
+			result.whenComplete((img, err) -> {
+				CompletableFuture<BufferedImage> attempt = current.get();
+				if (result.isCancelled() && attempt != null) attempt.cancel(false);
+			});
+
+			attempt(0, request, result, current, firstError);
+			return result;
+		}
+
+		private void attempt(int i, Function<AsyncImageLoader, CompletableFuture<BufferedImage>> request, CompletableFuture<BufferedImage> result, AtomicReference<CompletableFuture<BufferedImage>> current, AtomicReference<Throwable> firstError) {
+			if (result.isDone()) return;
+
+			if (i >= loaders.size()) {
+				if (firstError.get() != null) {
+					result.completeExceptionally(firstError.get());
+				} else {
+					result.complete(null);
+				}
+				return;
+			}
+
+			CompletableFuture<BufferedImage> attempt = request.apply(loaders.get(i));
+			current.set(attempt);
+			if (result.isCancelled()) attempt.cancel(false);
+
+			attempt.whenComplete((img, err) -> {
+				if (img != null) {
+					result.complete(img);
+					return;
+				}
+
+				if (err != null && !(err instanceof CancellationException)) {
+					firstError.compareAndSet(null, err instanceof CompletionException && err.getCause() != null ? err.getCause() : err);
+				}
+
+				attempt(i + 1, request, result, current, firstError);
+			});
+		}
+	}
+}
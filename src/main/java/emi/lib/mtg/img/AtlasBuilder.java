@@ -0,0 +1,230 @@
+package emi.lib.mtg.img;
+
+import emi.lib.mtg.Card;
+import emi.lib.mtg.ImageSource;
+import emi.lib.mtg.util.WeightedLruCache;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Packs thumbnails of many card prints into a few large sprite sheets, plus an index of where each print's thumbnail
+ * lies. Thumbnails are produced in parallel with {@link MtgAwtImageUtils#scaled} and
+ * {@link MtgAwtImageUtils#clearCorners}, and laid out in a grid, filling each sheet row by row.
+ *
+ * Atlases are cached by a hash of their content: the list of prints and the builder's dimensions. Building an atlas
+ * for the same page of prints again returns the cached atlas.
+ */
+public class AtlasBuilder {
+	/**
+	 * The location of one thumbnail within an atlas.
+	 */
+	public static final class Region {
+		public final int sheet, x, y, width, height;
+
+		public Region(int sheet, int x, int y, int width, int height) {
+			this.sheet = sheet;
+			this.x = x;
+			this.y = y;
+			this.width = width;
+			this.height = height;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d:%d,%d+%dx%d", sheet, x, y, width, height);
+		}
+	}
+
+	/**
+	 * A set of sprite sheets and the index of which print's thumbnail lies where. Prints for which no image could be
+	 * found are absent from the index.
+	 */
+	public static final class Atlas {
+		public final String hash;
+		public final List<BufferedImage> sheets;
+		public final Map<Card.Print.Reference, Region> index;
+
+		private Atlas(String hash, List<BufferedImage> sheets, Map<Card.Print.Reference, Region> index) {
+			this.hash = hash;
+			this.sheets = Collections.unmodifiableList(sheets);
+			this.index = Collections.unmodifiableMap(index);
+		}
+
+		public Region region(Card.Print print) {
+			return index.get(print.reference());
+		}
+
+		/**
+		 * Writes this atlas's sheets as <code>&lt;hash&gt;-&lt;n&gt;.png</code>, and its index as a tab-separated
+		 * <code>&lt;hash&gt;.tsv</code> of print reference, sheet, x, y, width and height.
+		 * @param directory The directory in which to write the atlas.
+		 * @throws IOException If an error occurs while writing the atlas.
+		 */
+		public void write(Path directory) throws IOException {
+			Files.createDirectories(directory);
+
+			for (int i = 0; i < sheets.size(); ++i) {
+				if (!ImageIO.write(sheets.get(i), "png", directory.resolve(hash + "-" + i + ".png").toFile())) {
+					throw new IOException("No PNG writer available for atlas sheets.");
+				}
+			}
+
+			try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve(hash + ".tsv"), StandardCharsets.UTF_8)) {
+				for (Map.Entry<Card.Print.Reference, Region> entry : index.entrySet()) {
+					Region r = entry.getValue();
+					writer.write(String.format("%s\t%d\t%d\t%d\t%d\t%d%n", entry.getKey().format(), r.sheet, r.x, r.y, r.width, r.height));
+				}
+			}
+		}
+
+		private long bytes() {
+			long bytes = 0;
+			for (BufferedImage sheet : sheets) bytes += (long) sheet.getWidth() * sheet.getHeight() * 4;
+			return bytes;
+		}
+	}
+
+	private final ImageSource source;
+	private final int thumbnailWidth, thumbnailHeight;
+	private final int columns, rows;
+	private final Executor executor;
+	private final WeightedLruCache<String, Atlas> cache;
+
+	/**
+	 * Creates an atlas builder which produces thumbnails on the common fork-join pool.
+	 * @param source The image source from which to open full card images.
+	 * @param thumbnailWidth The width of each thumbnail.
+	 * @param thumbnailHeight The height of each thumbnail.
+	 * @param maxSheetWidth The maximum width of each sprite sheet.
+	 * @param maxSheetHeight The maximum height of each sprite sheet.
+	 * @param cacheBytes The maximum total size of cached atlases, in bytes.
+	 */
+	public AtlasBuilder(ImageSource source, int thumbnailWidth, int thumbnailHeight, int maxSheetWidth, int maxSheetHeight, long cacheBytes) {
+		this(source, thumbnailWidth, thumbnailHeight, maxSheetWidth, maxSheetHeight, cacheBytes, ForkJoinPool.commonPool());
+	}
+
+	public AtlasBuilder(ImageSource source, int thumbnailWidth, int thumbnailHeight, int maxSheetWidth, int maxSheetHeight, long cacheBytes, Executor executor) {
+		if (thumbnailWidth <= 0 || thumbnailHeight <= 0) throw new IllegalArgumentException("Thumbnails must be at least one pixel in size.");
+		if (maxSheetWidth < thumbnailWidth || maxSheetHeight < thumbnailHeight) throw new IllegalArgumentException("Sheets must be able to hold at least one thumbnail.");
+
+		this.source = Objects.requireNonNull(source);
+		this.thumbnailWidth = thumbnailWidth;
+		this.thumbnailHeight = thumbnailHeight;
+		this.columns = maxSheetWidth / thumbnailWidth;
+		this.rows = maxSheetHeight / thumbnailHeight;
+		this.executor = Objects.requireNonNull(executor);
+		this.cache = new WeightedLruCache<>(cacheBytes, Atlas::bytes);
+	}
+
+	/**
+	 * Builds (or obtains from the cache) an atlas of thumbnails of the given prints.
+	 * @param prints The prints to include, in the order in which they should be laid out.
+	 * @return An atlas of the prints' thumbnails.
+	 * @throws IOException If the image source encountered an error opening any print's image.
+	 */
+	public Atlas build(List<? extends Card.Print> prints) throws IOException {
+		List<Card.Print.Reference> references = new ArrayList<>(prints.size());
+		for (Card.Print print : prints) references.add(print.reference());
+
+		String hash = hash(references);
+		Atlas atlas = cache.get(hash);
+		if (atlas != null) return atlas;
+
+		List<CompletableFuture<PixelBuffer>> futures = new ArrayList<>(prints.size());
+		for (Card.Print print : prints) {
+			futures.add(CompletableFuture.supplyAsync(() -> {
+				try {
+					return thumbnail(print);
+				} catch (IOException ioe) {
+					throw new UncheckedIOException(ioe);
+				}
+			}, executor));
+		}
+
+		List<PixelBuffer> sheets = new ArrayList<>();
+		Map<Card.Print.Reference, Region> index = new LinkedHashMap<>();
+		final int perSheet = columns * rows;
+		int placed = 0;
+
+		for (int i = 0; i < futures.size(); ++i) {
+			PixelBuffer thumbnail = join(futures.get(i));
+			if (thumbnail == null || index.containsKey(references.get(i))) continue;
+
+			final int sheet = placed / perSheet, slot = placed % perSheet;
+			if (sheet == sheets.size()) sheets.add(newSheet(futures.size() - i, perSheet));
+
+			final int x = (slot % columns) * thumbnailWidth, y = (slot / columns) * thumbnailHeight;
+			sheets.get(sheet).draw(thumbnail, x, y);
+			index.put(references.get(i), new Region(sheet, x, y, thumbnailWidth, thumbnailHeight));
+			++placed;
+		}
+
+		List<BufferedImage> images = new ArrayList<>(sheets.size());
+		for (PixelBuffer sheet : sheets) images.add(sheet.toImage());
+
+		atlas = new Atlas(hash, images, index);
+		cache.put(hash, atlas);
+		return atlas;
+	}
+
+	private PixelBuffer newSheet(int remaining, int perSheet) {
+		// Size the sheet for the remaining prints, at most; it may end up with a few empty slots if some aren't found.
+		final int count = Math.min(remaining, perSheet);
+		final int usedColumns = Math.min(count, columns), usedRows = (count + columns - 1) / columns;
+		return new PixelBuffer(usedColumns * thumbnailWidth, usedRows * thumbnailHeight);
+	}
+
+	private PixelBuffer thumbnail(Card.Print print) throws IOException {
+		// Sources which decode their own images can do so at reduced resolution, rather than decoding the full image.
+		BufferedImage scaled = source.open(print, thumbnailWidth, thumbnailHeight);
+		if (scaled == null) return null;
+
+		return PixelBuffer.of(MtgAwtImageUtils.clearCorners(scaled));
+	}
+
+	private static PixelBuffer join(CompletableFuture<PixelBuffer> future) throws IOException {
+		try {
+			return future.join();
+		} catch (CompletionException ce) {
+			if (ce.getCause() instanceof UncheckedIOException) throw ((UncheckedIOException) ce.getCause()).getCause();
+			throw ce;
+		}
+	}
+
+	private String hash(List<Card.Print.Reference> references) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException nsae) {
+			throw new Error(nsae);
+		}
+
+		digest.update(String.format("%dx%d %dx%d\n", thumbnailWidth, thumbnailHeight, columns, rows).getBytes(StandardCharsets.UTF_8));
+		for (Card.Print.Reference reference : references) {
+			digest.update(reference.format().getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) '\n');
+		}
+
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest()) hex.append(String.format("%02x", b));
+		return hex.toString();
+	}
+
+	public void clearCache() {
+		cache.clear();
+	}
+}
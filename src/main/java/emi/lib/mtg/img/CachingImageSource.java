@@ -0,0 +1,292 @@
+package emi.lib.mtg.img;
+
+import emi.lib.mtg.Card;
+import emi.lib.mtg.ImageSource;
+import emi.lib.mtg.util.WeightedLruCache;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UnsupportedEncodingException;
+import java.lang.ref.SoftReference;
+import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * An image source which caches the images opened through another. Up to three layers are consulted in order:
+ *
+ * <ol>
+ *     <li>An in-memory least-recently-used cache of decoded images, bounded by their total size in bytes. Entries can
+ *     optionally be held via soft references, so the garbage collector may reclaim them under memory pressure.</li>
+ *     <li>Optionally, a directory of PNG files keyed by {@link Card.Print.Reference}. Images are only written here if
+ *     the wrapped source is {@link ImageSource#cacheable()}.</li>
+ *     <li>The wrapped source itself.</li>
+ * </ol>
+ *
+ * Images opened at a particular size are cached under that size, apart from full-size images.
+ *
+ * Concurrent requests for the same print or printed face are coalesced: only one thread consults the disk or wrapped
+ * source, and the rest wait for and share its result. Images which couldn't be found aren't cached.
+ *
+ * Images returned by this source are shared between callers, and must not be modified.
+ */
+public class CachingImageSource implements ImageSource {
+	private static final class Key {
+		private final Card.Print.Reference print;
+		private final String face;
+		private final int width, height;
+
+		public Key(Card.Print print, int width, int height) {
+			this.print = print.reference();
+			this.face = null;
+			this.width = width;
+			this.height = height;
+		}
+
+		public Key(Card.Print.Face facePrint, int width, int height) {
+			this.print = facePrint.print().reference();
+			this.face = facePrint.face().name() + (facePrint.onBack() ? "-back" : "");
+			this.width = width;
+			this.height = height;
+		}
+
+		public Path file(Path directory) {
+			String name = print.collectorNumber() + "-" + print.name() + (face != null ? "-" + face : "") + (width > 0 ? "-" + width + "x" + height : "");
+			return directory.resolve(encode(print.setCode())).resolve(encode(name) + ".png");
+		}
+
+		private static String encode(String part) {
+			try {
+				return URLEncoder.encode(part, "UTF-8");
+			} catch (UnsupportedEncodingException uee) {
+				throw new Error(uee);
+			}
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(print, face, width, height);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) return false;
+			Key other = (Key) obj;
+			return print.equals(other.print) && Objects.equals(face, other.face) && width == other.width && height == other.height;
+		}
+
+		@Override
+		public String toString() {
+			String str = face != null ? print.format() + " // " + face : print.format();
+			return width > 0 ? str + " @ " + width + "x" + height : str;
+		}
+	}
+
+	private interface Loader {
+		BufferedImage load() throws IOException;
+	}
+
+	private static class Entry {
+		private final BufferedImage strong;
+		private final SoftReference<BufferedImage> soft;
+		private final long bytes;
+
+		public Entry(BufferedImage image, boolean soft) {
+			this.strong = soft ? null : image;
+			this.soft = soft ? new SoftReference<>(image) : null;
+			this.bytes = bytes(image);
+		}
+
+		public BufferedImage get() {
+			return strong != null ? strong : soft.get();
+		}
+	}
+
+	private final ImageSource source;
+	private final long memoryCapacity;
+	private final boolean soft;
+	private final Path directory;
+
+	private final WeightedLruCache<Key, Entry> memory;
+	private final Map<Key, CompletableFuture<BufferedImage>> inFlight = new ConcurrentHashMap<>();
+
+	/**
+	 * Caches images from a source in memory only.
+	 * @param source The image source to cache.
+	 * @param memoryCapacity The maximum total size of cached images, in bytes of pixel data.
+	 */
+	public CachingImageSource(ImageSource source, long memoryCapacity) {
+		this(source, memoryCapacity, false, null);
+	}
+
+	/**
+	 * Caches images from a source in memory and, optionally, on disk.
+	 * @param source The image source to cache.
+	 * @param memoryCapacity The maximum total size of cached images, in bytes of pixel data.
+	 * @param soft If true, cached images are held via soft references and may be reclaimed by the garbage collector.
+	 * @param directory The directory in which to store encoded images, or null to cache only in memory.
+	 */
+	public CachingImageSource(ImageSource source, long memoryCapacity, boolean soft, Path directory) {
+		this.source = Objects.requireNonNull(source);
+		this.memoryCapacity = memoryCapacity;
+		this.soft = soft;
+		this.directory = directory;
+		this.memory = new WeightedLruCache<>(memoryCapacity, e -> e.bytes);
+	}
+
+	private static long bytes(BufferedImage image) {
+		DataBuffer buffer = image.getRaster().getDataBuffer();
+		return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+	}
+
+	@Override
+	public int priority() {
+		return source.priority();
+	}
+
+	/**
+	 * Images from this source are already cached on disk if it has a disk layer; otherwise, this is as cacheable as the
+	 * wrapped source.
+	 */
+	@Override
+	public boolean cacheable() {
+		return directory == null && source.cacheable();
+	}
+
+	@Override
+	public BufferedImage open(Card.Print print) throws IOException {
+		return open(new Key(print, 0, 0), () -> source.open(print));
+	}
+
+	@Override
+	public BufferedImage open(Card.Print.Face facePrint) throws IOException {
+		return open(new Key(facePrint, 0, 0), () -> source.open(facePrint));
+	}
+
+	/**
+	 * Sized images are cached separately from full-size ones, so the wrapped source's cheaper sized open is used.
+	 */
+	@Override
+	public BufferedImage open(Card.Print print, int width, int height) throws IOException {
+		if (width <= 0 || height <= 0) throw new IllegalArgumentException(String.format("Can't open a %dx%d image.", width, height));
+		return open(new Key(print, width, height), () -> source.open(print, width, height));
+	}
+
+	@Override
+	public BufferedImage open(Card.Print.Face facePrint, int width, int height) throws IOException {
+		if (width <= 0 || height <= 0) throw new IllegalArgumentException(String.format("Can't open a %dx%d image.", width, height));
+		return open(new Key(facePrint, width, height), () -> source.open(facePrint, width, height));
+	}
+
+	private BufferedImage open(Key key, Loader loader) throws IOException {
+		BufferedImage image = memoryGet(key);
+		if (image != null) return image;
+
+		CompletableFuture<BufferedImage> mine = new CompletableFuture<>();
+		CompletableFuture<BufferedImage> existing = inFlight.putIfAbsent(key, mine);
+		if (existing != null) return await(existing);
+
+		try {
+			// Someone may have finished loading this image between our first look and claiming it.
+			image = memoryGet(key);
+			if (image == null) image = load(key, loader);
+			mine.complete(image);
+			return image;
+		} catch (Throwable t) {
+			mine.completeExceptionally(t);
+			throw t;
+		} finally {
+			inFlight.remove(key, mine);
+		}
+	}
+
+	private static BufferedImage await(CompletableFuture<BufferedImage> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for another thread to load an image.");
+		} catch (ExecutionException ee) {
+			if (ee.getCause() instanceof IOException) throw (IOException) ee.getCause();
+			if (ee.getCause() instanceof RuntimeException) throw (RuntimeException) ee.getCause();
+			throw new IOException(ee.getCause());
+		}
+	}
+
+	private BufferedImage load(Key key, Loader loader) throws IOException {
+		Path file = directory != null ? key.file(directory) : null;
+
+		BufferedImage image = null;
+		if (file != null && Files.isRegularFile(file)) {
+			try {
+				image = ImageIO.read(file.toFile());
+			} catch (IOException ioe) {
+				// A corrupt cache file is no reason to fail; fall through to the source.
+				ioe.printStackTrace();
+			}
+		}
+
+		if (image == null) {
+			image = loader.load();
+			if (image == null) return null;
+
+			if (file != null && source.cacheable()) store(file, image);
+		}
+
+		memoryPut(key, image);
+		return image;
+	}
+
+	private static void store(Path file, BufferedImage image) {
+		try {
+			Files.createDirectories(file.getParent());
+			Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+			if (!ImageIO.write(image, "png", tmp.toFile())) throw new IOException("No PNG writer available for " + image);
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException ioe) {
+			// Failing to cache isn't fatal; the image was still opened successfully.
+			ioe.printStackTrace();
+		}
+	}
+
+	private BufferedImage memoryGet(Key key) {
+		Entry entry = memory.get(key);
+		if (entry == null) return null;
+
+		BufferedImage image = entry.get();
+		if (image == null) memory.remove(key);
+		return image;
+	}
+
+	private void memoryPut(Key key, BufferedImage image) {
+		memory.put(key, new Entry(image, soft));
+	}
+
+	/**
+	 * @return The total size in bytes of the images currently cached in memory, including any whose soft references
+	 * have been cleared but not yet noticed.
+	 */
+	public long memoryBytes() {
+		return memory.weight();
+	}
+
+	public long memoryCapacity() {
+		return memoryCapacity;
+	}
+
+	/**
+	 * Discards every image cached in memory. The disk layer, if any, is left alone.
+	 */
+	public void clearMemory() {
+		memory.clear();
+	}
+}
@@ -0,0 +1,240 @@
+package emi.lib.mtg.img;
+
+import emi.lib.mtg.Card;
+import emi.lib.mtg.util.WeightedLruCache;
+
+import java.awt.image.BufferedImage;
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches face images derived from full card images by {@link MtgAwtImageUtils#faceFromFull} and
+ * {@link MtgAwtImageUtils#meldedFace}, optionally scaled to a target size. Entries are keyed by printed face, frame and
+ * size, and remember a fingerprint of the full image(s) they were derived from: asking for a face with a different full
+ * image than last time, e.g. because the image source found a better scan, replaces the cached face rather than
+ * returning a stale one. Asking again with an equal full image, e.g. one decoded anew by a source which doesn't cache
+ * its images, is still a hit.
+ *
+ * Faces returned from the cache are shared between callers, and must not be modified.
+ */
+public class FaceImageCache {
+	private static final class Key {
+		private final Card.Print.Face face;
+		private final Card.Print.Face.Frame frame;
+		private final int w, h;
+
+		public Key(Card.Print.Face face, int w, int h) {
+			this.face = face;
+			this.frame = face.frame();
+			this.w = w;
+			this.h = h;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(face, frame, w, h);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) return false;
+			Key other = (Key) obj;
+			return w == other.w && h == other.h && face.equals(other.face) && frame.equals(other.frame);
+		}
+	}
+
+	private static final class Entry {
+		private final BufferedImage image;
+		private final long fingerprint1, fingerprint2;
+		private volatile WeakReference<BufferedImage> source1, source2;
+
+		public Entry(BufferedImage image, BufferedImage source1, BufferedImage source2) {
+			this.image = image;
+			this.fingerprint1 = fingerprint(source1);
+			this.fingerprint2 = fingerprint(source2);
+			remember(source1, source2);
+		}
+
+		private void remember(BufferedImage source1, BufferedImage source2) {
+			this.source1 = new WeakReference<>(source1);
+			this.source2 = source2 != null ? new WeakReference<>(source2) : null;
+		}
+
+		public boolean derivedFrom(BufferedImage source1, BufferedImage source2) {
+			WeakReference<BufferedImage> ref1 = this.source1, ref2 = this.source2;
+			if (ref1.get() == source1 && (ref2 != null ? ref2.get() == source2 : source2 == null)) return true;
+
+			// Sources which don't cache hand out a new image each time; compare what's in them instead.
+			if (fingerprint(source1) != fingerprint1 || fingerprint(source2) != fingerprint2) return false;
+			remember(source1, source2);
+			return true;
+		}
+
+		public long bytes() {
+			return (long) image.getWidth() * image.getHeight() * 4;
+		}
+	}
+
+	/**
+	 * Fingerprints sample about this many pixels along each axis of an image.
+	 */
+	private static final int FINGERPRINT_SAMPLES = 32;
+
+	private final WeightedLruCache<Key, Entry> entries;
+	private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong(), invalidations = new AtomicLong();
+
+	/**
+	 * @param capacity The maximum total size of cached face images, in bytes.
+	 */
+	public FaceImageCache(long capacity) {
+		this.entries = new WeightedLruCache<>(capacity, Entry::bytes);
+	}
+
+	/**
+	 * Obtains the image of a face at its natural size. See {@link MtgAwtImageUtils#faceFromFull}.
+	 * @param face The printed face to extract.
+	 * @param full The full card image.
+	 * @return An upright image of the face.
+	 */
+	public BufferedImage faceFromFull(Card.Print.Face face, BufferedImage full) {
+		return faceFromFull(face, full, 0, 0);
+	}
+
+	/**
+	 * Obtains the image of a face, scaled to the given size. See {@link MtgAwtImageUtils#faceFromFull}.
+	 * @param face The printed face to extract.
+	 * @param full The full card image.
+	 * @param w The width to scale the face to, or 0 for its natural size.
+	 * @param h The height to scale the face to, or 0 for its natural size.
+	 * @return An upright image of the face.
+	 */
+	public BufferedImage faceFromFull(Card.Print.Face face, BufferedImage full, int w, int h) {
+		Key key = new Key(face, w, h);
+		BufferedImage cached = lookup(key, full, null);
+		if (cached != null) return cached;
+
+		PixelBuffer derived = MtgAwtImageUtils.faceFromFull(face, PixelBuffer.of(full));
+		return store(key, scale(derived, w, h), full, null);
+	}
+
+	/**
+	 * Obtains the image of a melded face at its natural size. See {@link MtgAwtImageUtils#meldedFace}.
+	 */
+	public BufferedImage meldedFace(Card.Print.Face face, BufferedImage top, BufferedImage bottom) {
+		return meldedFace(face, top, bottom, 0, 0);
+	}
+
+	/**
+	 * Obtains the image of a melded face, scaled to the given size. See {@link MtgAwtImageUtils#meldedFace}.
+	 * @param face The printed melded face.
+	 * @param top The back of the top half of the melded card.
+	 * @param bottom The back of the bottom half of the melded card.
+	 * @param w The width to scale the face to, or 0 for its natural size.
+	 * @param h The height to scale the face to, or 0 for its natural size.
+	 * @return An upright image of the melded face.
+	 */
+	public BufferedImage meldedFace(Card.Print.Face face, BufferedImage top, BufferedImage bottom, int w, int h) {
+		Key key = new Key(face, w, h);
+		BufferedImage cached = lookup(key, top, bottom);
+		if (cached != null) return cached;
+
+		PixelBuffer derived = MtgAwtImageUtils.meldedFace(face, PixelBuffer.of(top), PixelBuffer.of(bottom));
+		return store(key, scale(derived, w, h), top, bottom);
+	}
+
+	/**
+	 * @return A hash of an image's size and a grid of its pixels, or 0 for no image. Far cheaper than deriving a face,
+	 * and different for a different scan of the same card.
+	 */
+	private static long fingerprint(BufferedImage image) {
+		if (image == null) return 0;
+
+		final int w = image.getWidth(), h = image.getHeight();
+		final int dx = Math.max(1, w / FINGERPRINT_SAMPLES), dy = Math.max(1, h / FINGERPRINT_SAMPLES);
+
+		long hash = w * 31L + h;
+		for (int y = dy / 2; y < h; y += dy) {
+			for (int x = dx / 2; x < w; x += dx) {
+				hash = hash * 31 + image.getRGB(x, y);
+			}
+		}
+		return hash;
+	}
+
+	private static PixelBuffer scale(PixelBuffer face, int w, int h) {
+		if (w <= 0 || h <= 0 || (w == face.width && h == face.height)) return face;
+		return new ThumbnailPyramid(face).resample(w, h);
+	}
+
+	private BufferedImage lookup(Key key, BufferedImage source1, BufferedImage source2) {
+		Entry entry = entries.get(key);
+
+		if (entry == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+
+		if (!entry.derivedFrom(source1, source2)) {
+			entries.remove(key);
+			invalidations.incrementAndGet();
+			misses.incrementAndGet();
+			return null;
+		}
+
+		hits.incrementAndGet();
+		return entry.image;
+	}
+
+	private BufferedImage store(Key key, PixelBuffer face, BufferedImage source1, BufferedImage source2) {
+		BufferedImage image = face.toImage();
+		entries.put(key, new Entry(image, source1, source2));
+		return image;
+	}
+
+	/**
+	 * @return The number of requests answered from the cache.
+	 */
+	public long hits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return The number of requests which had to derive a face image, including invalidations.
+	 */
+	public long misses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return The number of cached faces discarded because they were requested with a full image whose contents differ.
+	 */
+	public long invalidations() {
+		return invalidations.get();
+	}
+
+	/**
+	 * @return The fraction of requests answered from the cache, or NaN if there haven't been any.
+	 */
+	public double hitRate() {
+		long hits = this.hits.get(), total = hits + misses.get();
+		return total == 0 ? Double.NaN : (double) hits / total;
+	}
+
+	/**
+	 * @return The total size of the cached face images, in bytes.
+	 */
+	public long bytes() {
+		return entries.weight();
+	}
+
+	public void clear() {
+		entries.clear();
+	}
+
+	public void resetMetrics() {
+		hits.set(0);
+		misses.set(0);
+		invalidations.set(0);
+	}
+}
@@ -0,0 +1,102 @@
+package emi.lib.mtg.img;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * Decodes images directly at a reduced size. Rather than decoding a full-resolution card scan only to throw most of it
+ * away when making a thumbnail, the decoder asks ImageIO to subsample the source while reading it, so the decoded image
+ * (and the work to produce it) is smaller by roughly the square of the subsampling factor. The result is then
+ * resampled to exactly the requested size.
+ *
+ * Subsampling simply skips pixels, which aliases. To compensate, images are decoded at no less than
+ * {@link #OVERSAMPLE} times the requested size, and the final resample goes through a {@link ThumbnailPyramid}.
+ *
+ * Image sources which read encoded images from disk or the network can use this to implement
+ * {@link emi.lib.mtg.ImageSource#open(emi.lib.mtg.Card.Print, int, int)}.
+ */
+public final class ImageDecoder {
+	/**
+	 * Images are decoded at no less than this multiple of the requested size before the final resample.
+	 */
+	public static final int OVERSAMPLE = 2;
+
+	private ImageDecoder() {
+	}
+
+	/**
+	 * Decodes an image file at the given size.
+	 * @param file The image file to decode.
+	 * @param w The width of the resulting image, or 0 to decode at full size.
+	 * @param h The height of the resulting image, or 0 to decode at full size.
+	 * @return The decoded image, or null if no ImageIO reader recognizes the file.
+	 * @throws IOException If an error occurs while reading the file.
+	 */
+	public static BufferedImage read(Path file, int w, int h) throws IOException {
+		try (InputStream in = Files.newInputStream(file)) {
+			return read(in, w, h);
+		}
+	}
+
+	/**
+	 * Decodes an image at the given size. The stream is read but not closed.
+	 * @param in The encoded image.
+	 * @param w The width of the resulting image, or 0 to decode at full size.
+	 * @param h The height of the resulting image, or 0 to decode at full size.
+	 * @return The decoded image, or null if no ImageIO reader recognizes the stream.
+	 * @throws IOException If an error occurs while reading the stream.
+	 */
+	public static BufferedImage read(InputStream in, int w, int h) throws IOException {
+		try (ImageInputStream iis = ImageIO.createImageInputStream(in)) {
+			if (iis == null) return null;
+
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+			if (!readers.hasNext()) return null;
+
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(iis, true, true);
+
+				ImageReadParam param = reader.getDefaultReadParam();
+				if (w > 0 && h > 0) {
+					int subsampling = subsampling(reader.getWidth(0), reader.getHeight(0), w, h);
+					if (subsampling > 1) param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+				}
+
+				BufferedImage decoded = reader.read(0, param);
+				return w > 0 && h > 0 ? fit(decoded, w, h) : decoded;
+			} finally {
+				reader.dispose();
+			}
+		}
+	}
+
+	/**
+	 * Determines how many source pixels to skip per decoded pixel, such that the decoded image remains at least
+	 * {@link #OVERSAMPLE} times the requested size in both dimensions.
+	 * @return The subsampling factor; 1 if the image shouldn't be subsampled.
+	 */
+	public static int subsampling(int sourceW, int sourceH, int w, int h) {
+		return Math.max(1, Math.min(sourceW / (w * OVERSAMPLE), sourceH / (h * OVERSAMPLE)));
+	}
+
+	/**
+	 * Resamples an already-decoded image to exactly the given size.
+	 * @param image The image to resample.
+	 * @param w The width of the resulting image.
+	 * @param h The height of the resulting image.
+	 * @return The image, if it's already the right size, or a resampled copy.
+	 */
+	public static BufferedImage fit(BufferedImage image, int w, int h) {
+		if (image.getWidth() == w && image.getHeight() == h) return image;
+		return new ThumbnailPyramid(image).scaled(w, h);
+	}
+}
@@ -0,0 +1,316 @@
+package emi.lib.mtg.img;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides where the row bands of image operations such as {@link MtgAwtImageUtils#resample} and
+ * {@link PixelBuffer#resample} run. Install one with {@link MtgAwtImageUtils#setExecutor}.
+ *
+ * Each executor holds a fixed number of permits, bounding how many bands may be queued or running on it at once across
+ * every caller. When none are free, the calling thread processes the band itself rather than queueing it, so a burst of
+ * image work slows down its callers instead of piling up behind them or starving other work on a shared pool.
+ *
+ * Bands which themselves start image operations process those on their own thread, so image operations never block
+ * waiting for the executor from inside it.
+ */
+public abstract class ImageOpExecutor {
+	private static final ThreadLocal<Boolean> IN_IMAGE_OP = ThreadLocal.withInitial(() -> false);
+
+	private static class CallerRuns extends ImageOpExecutor {
+		private CallerRuns() {
+			super(0);
+		}
+
+		@Override
+		protected Future<?> submit(Runnable task) {
+			throw new RejectedExecutionException();
+		}
+	}
+
+	private static class Delegating extends ImageOpExecutor {
+		private final ExecutorService executor;
+		private final boolean owned;
+
+		private Delegating(ExecutorService executor, boolean owned, int maxConcurrent) {
+			super(maxConcurrent);
+			this.executor = executor;
+			this.owned = owned;
+		}
+
+		@Override
+		protected Future<?> submit(Runnable task) {
+			return executor.submit(task);
+		}
+
+		@Override
+		protected void release() {
+			if (owned) executor.shutdown();
+		}
+	}
+
+	/**
+	 * @return An executor which processes every band on the calling thread.
+	 */
+	public static ImageOpExecutor callerRuns() {
+		return new CallerRuns();
+	}
+
+	/**
+	 * @param pool The fork-join pool on which to process bands. It's not shut down by {@link #shutdown()}.
+	 * @param maxConcurrent The maximum number of bands queued or running on the pool at once.
+	 * @return An executor which shares a fork-join pool with other work.
+	 */
+	public static ImageOpExecutor forkJoin(ForkJoinPool pool, int maxConcurrent) {
+		return new Delegating(pool, false, maxConcurrent);
+	}
+
+	/**
+	 * @return An executor which shares the common fork-join pool, with up to its parallelism's worth of bands at once.
+	 */
+	public static ImageOpExecutor commonPool() {
+		return forkJoin(ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism());
+	}
+
+	/**
+	 * @param threads The number of daemon threads in the pool.
+	 * @param maxConcurrent The maximum number of bands queued or running on the pool at once.
+	 * @return An executor with its own pool of threads, dedicated to image operations.
+	 */
+	public static ImageOpExecutor dedicated(int threads, int maxConcurrent) {
+		if (threads <= 0) throw new IllegalArgumentException("A dedicated image op pool needs at least one thread.");
+
+		AtomicInteger counter = new AtomicInteger(0);
+		ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+			Thread thread = new Thread(r, "LibMtg-ImageOp-" + counter.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		return new Delegating(pool, true, maxConcurrent);
+	}
+
+	/**
+	 * @param threads The number of daemon threads in the pool.
+	 * @return An executor with its own pool of threads, with up to one band per thread at once.
+	 */
+	public static ImageOpExecutor dedicated(int threads) {
+		return dedicated(threads, threads);
+	}
+
+	/**
+	 * @param executor The executor service on which to process bands. It's not shut down by {@link #shutdown()}.
+	 * @param maxConcurrent The maximum number of bands queued or running on the executor at once.
+	 * @return An executor which hands bands to an arbitrary executor service.
+	 */
+	public static ImageOpExecutor of(ExecutorService executor, int maxConcurrent) {
+		return new Delegating(executor, false, maxConcurrent);
+	}
+
+	/**
+	 * @return True if this JVM supports virtual threads (Java 21 and later).
+	 */
+	public static boolean virtualThreadsSupported() {
+		try {
+			Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return true;
+		} catch (NoSuchMethodException nsme) {
+			return false;
+		}
+	}
+
+	/**
+	 * Virtual threads are cheap to block, but image operations are CPU-bound, so the permit count is what actually
+	 * limits how much of the machine they use.
+	 * @param maxConcurrent The maximum number of bands queued or running at once.
+	 * @return An executor which processes each band on a new virtual thread.
+	 * @throws UnsupportedOperationException If this JVM doesn't support virtual threads.
+	 */
+	public static ImageOpExecutor virtualThreads(int maxConcurrent) {
+		ExecutorService executor;
+		try {
+			executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException roe) {
+			throw new UnsupportedOperationException("Virtual threads aren't supported by this JVM.", roe);
+		}
+
+		return new Delegating(executor, true, maxConcurrent);
+	}
+
+	/**
+	 * @return The executor used until another is installed: a dedicated pool leaving one core for the rest of the
+	 * application, or caller-runs on a single-core machine.
+	 */
+	static ImageOpExecutor defaultExecutor() {
+		final int threads = Runtime.getRuntime().availableProcessors() - 1;
+		return threads > 0 ? dedicated(threads) : callerRuns();
+	}
+
+	private final int maxConcurrent;
+	private final Semaphore permits;
+	private final AtomicInteger queued = new AtomicInteger(0), active = new AtomicInteger(0);
+	private final AtomicInteger peakQueued = new AtomicInteger(0);
+	private final AtomicLong submitted = new AtomicLong(0), callerRan = new AtomicLong(0);
+	private volatile boolean shutdown = false;
+
+	protected ImageOpExecutor(int maxConcurrent) {
+		if (maxConcurrent < 0) throw new IllegalArgumentException("Maximum concurrency can't be negative.");
+		this.maxConcurrent = maxConcurrent;
+		this.permits = new Semaphore(maxConcurrent);
+	}
+
+	/**
+	 * Hands a band off to be processed asynchronously.
+	 * @throws RejectedExecutionException If the band can't be accepted; it's then processed on the calling thread.
+	 */
+	protected abstract Future<?> submit(Runnable task);
+
+	/**
+	 * Releases any threads this executor owns. Bands submitted afterward run on the calling thread, and the executor
+	 * can't be installed with {@link MtgAwtImageUtils#setExecutor} again.
+	 */
+	public final void shutdown() {
+		shutdown = true;
+		release();
+	}
+
+	/**
+	 * Releases any threads this executor owns; called once by {@link #shutdown()}.
+	 */
+	protected void release() {
+	}
+
+	/**
+	 * @return True if this executor has been shut down, e.g. by being replaced with {@link MtgAwtImageUtils#setExecutor}.
+	 */
+	public boolean isShutdown() {
+		return shutdown;
+	}
+
+	/**
+	 * Splits the rows [0, h) into bands and processes them, blocking until all are complete.
+	 */
+	void rows(int h, int bandRows, MtgAwtImageUtils.RowBand band) {
+		if (IN_IMAGE_OP.get()) {
+			band.rows(0, h);
+			return;
+		}
+
+		List<Future<?>> futures = new ArrayList<>();
+
+		try {
+			IN_IMAGE_OP.set(true);
+
+			for (int y = 0; y < h; y += bandRows) {
+				final int y1 = y, y2 = Math.min(y + bandRows, h);
+
+				// The last band always runs here; the calling thread would otherwise sit idle waiting for it.
+				Future<?> future = y2 < h ? trySubmit(() -> band.rows(y1, y2)) : null;
+				if (future != null) {
+					futures.add(future);
+				} else {
+					if (y2 < h) callerRan.incrementAndGet();
+					band.rows(y1, y2);
+				}
+			}
+		} finally {
+			IN_IMAGE_OP.set(false);
+		}
+
+		try {
+			for (Future<?> future : futures) future.get();
+		} catch (InterruptedException ie) {
+			ie.printStackTrace();
+			throw new Error(ie);
+		} catch (ExecutionException ee) {
+			ee.getCause().printStackTrace();
+			throw new Error(ee.getCause());
+		}
+	}
+
+	private Future<?> trySubmit(Runnable task) {
+		if (shutdown || !permits.tryAcquire()) return null;
+
+		// Shutdown may have raced with acquiring the permit; executors we don't own would still accept the band.
+		if (shutdown) {
+			permits.release();
+			return null;
+		}
+
+		final int depth = queued.incrementAndGet();
+		peakQueued.accumulateAndGet(depth, Math::max);
+
+		try {
+			Future<?> future = submit(() -> {
+				queued.decrementAndGet();
+				active.incrementAndGet();
+				IN_IMAGE_OP.set(true);
+				try {
+					task.run();
+				} finally {
+					IN_IMAGE_OP.set(false);
+					active.decrementAndGet();
+					permits.release();
+				}
+			});
+			submitted.incrementAndGet();
+			return future;
+		} catch (RejectedExecutionException ree) {
+			queued.decrementAndGet();
+			permits.release();
+			return null;
+		}
+	}
+
+	/**
+	 * @return The maximum number of bands queued or running on this executor at once.
+	 */
+	public int maxConcurrent() {
+		return maxConcurrent;
+	}
+
+	/**
+	 * @return The number of bands handed off but not yet started.
+	 */
+	public int queueDepth() {
+		return queued.get();
+	}
+
+	/**
+	 * @return The greatest number of bands which have been waiting to start at once.
+	 */
+	public int peakQueueDepth() {
+		return peakQueued.get();
+	}
+
+	/**
+	 * @return The number of bands currently being processed off the calling threads.
+	 */
+	public int active() {
+		return active.get();
+	}
+
+	/**
+	 * @return The total number of bands handed off.
+	 */
+	public long submitted() {
+		return submitted.get();
+	}
+
+	/**
+	 * @return The total number of bands which could have been handed off, but were processed on the calling thread
+	 * because every permit was taken.
+	 */
+	public long callerRan() {
+		return callerRan.get();
+	}
+
+	public void resetMetrics() {
+		peakQueued.set(queued.get());
+		submitted.set(0);
+		callerRan.set(0);
+	}
+}
@@ -8,10 +8,9 @@ import java.awt.geom.AffineTransform;
 import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
 
 public class MtgAwtImageUtils {
 	public static final double ROUND_RADIUS_FRACTION = 3.0 / 63.0; // 3mm out of 63 x 88
@@ -22,81 +21,66 @@ public class MtgAwtImageUtils {
 			return source;
 		}
 
-		BufferedImage dst = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_ARGB);
-		dst.createGraphics().drawImage(source, 0, 0, null);
-		int[] dstBuffer = ((DataBufferInt) dst.getRaster().getDataBuffer()).getData();
-
-		final double radius;
-
-		if (forceRadius < 0) {
-			// Heuristic to determine the border radius...
-			double tmp = -1;
-			int borderC = 0x00;
-			for (int x = source.getWidth() / 64; x < source.getWidth(); ++x) {
-				int rgb = source.getRGB(x, source.getHeight() / 4);
-				int r = (rgb >> 16) & 0xff;
-				int g = (rgb >> 8) & 0xff;
-				int b = (rgb) & 0xff;
-				int chrominance = Math.max(Math.max(r, g), b) - Math.min(Math.min(r, g), b);
-
-				if (borderC == 0x00 && Math.max(Math.max(r, g), b) >= 0x10) {
-					borderC = chrominance;
-				} else if (Math.abs(borderC - chrominance) >= 0x10) {
-					tmp = x;
-					break;
-				}
-			}
+		return PixelBuffer.of(source).clearCorners(forceRadius).toImage();
+	}
 
-			radius = tmp >= 0 ? tmp : source.getWidth() * ROUND_RADIUS_FRACTION;
-		} else {
-			radius = forceRadius;
-		}
+	public static BufferedImage clearCorners(BufferedImage source) {
+		return clearCorners(source, source.getWidth() * ROUND_RADIUS_FRACTION);
+	}
 
-		for (int y = 0; y < source.getHeight(); ++y) {
-			for (int x = 0; x < source.getWidth(); ++x) {
-				// possibly modify color if near corner
-				double ux = -1, uy = -1;
-				if (x <= radius) {
-					ux = x;
-				} else if (x >= dst.getWidth() - radius) {
-					ux = dst.getWidth() - x;
-				}
+	private static final AtomicReference<ImageOpExecutor> EXECUTOR = new AtomicReference<>(ImageOpExecutor.defaultExecutor());
 
-				if (y <= radius) {
-					uy = y;
-				} else if (y >= dst.getHeight() - radius) {
-					uy = dst.getHeight() - y;
-				}
+	/**
+	 * @return The executor on which image operations currently process their row bands.
+	 */
+	public static ImageOpExecutor executor() {
+		return EXECUTOR.get();
+	}
 
-				if (ux >= 0 && uy >= 0) {
-					double dx = ux - radius, dy = uy - radius;
-					double d = Math.sqrt(dx * dx + dy * dy);
-					double dd = Math.max(radius - 0.5, Math.min(d, radius + 0.5));
+	/**
+	 * Installs the executor on which image operations process their row bands. The previous executor is shut down
+	 * once operations already running on it have finished with it, so it can't be installed again afterward; create a
+	 * new one instead.
+	 * @param executor The executor to use from now on.
+	 * @throws IllegalStateException If the executor has already been shut down.
+	 */
+	public static void setExecutor(ImageOpExecutor executor) {
+		if (executor.isShutdown()) throw new IllegalStateException("Can't install an image op executor which has been shut down.");
+
+		ImageOpExecutor previous = EXECUTOR.getAndSet(executor);
+		if (previous != executor) previous.shutdown();
+	}
 
-					int alpha = (dstBuffer[dst.getWidth()*y + x] >> 24) & 0xff;
-					alpha = (int) Math.max(0, Math.min(alpha * (1 - 2 * (dd - radius)), 0xff));
-					dstBuffer[dst.getWidth()*y + x] = (dstBuffer[dst.getWidth()*y + x] & 0x00ffffff) | ((alpha << 24) & 0xff000000);
-				}
-			}
-		}
+	/**
+	 * The default number of destination rows in each band of work submitted to the image op executor.
+	 */
+	public static final int DEFAULT_BAND_ROWS = 16;
 
-		return dst;
-	}
+	/**
+	 * Images with no more than this many destination pixels are processed on the calling thread by default; handing
+	 * them off to the executor costs more than it saves.
+	 */
+	public static final int DEFAULT_INLINE_PIXELS = 128 * 128;
 
-	public static BufferedImage clearCorners(BufferedImage source) {
-		return clearCorners(source, source.getWidth() * ROUND_RADIUS_FRACTION);
+	interface RowBand {
+		void rows(int y1, int y2);
 	}
 
-	private static ExecutorService daemonPool(String prefix) {
-		return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() - 1, r -> {
-			Thread th = Executors.defaultThreadFactory().newThread(r);
-			th.setName(prefix + th.getId());
-			th.setDaemon(true);
-			return th;
-		});
-	}
+	/**
+	 * Splits the rows [0, h) into bands of <code>bandRows</code> rows and processes them on the image op executor,
+	 * blocking until all are complete. If <code>inline</code> is true or there's only one band, the rows are processed
+	 * on the calling thread.
+	 */
+	static void parallelRows(int h, int bandRows, boolean inline, RowBand band) {
+		if (bandRows <= 0) bandRows = DEFAULT_BAND_ROWS;
+
+		if (inline || h <= bandRows) {
+			band.rows(0, h);
+			return;
+		}
 
-	private static final ExecutorService IMAGE_OP_POOL = daemonPool("LibMtg-ImageOp-");
+		EXECUTOR.get().rows(h, bandRows, band);
+	}
 
 	public static DoubleBinaryOperator gaussian(double sigma) {
 		return (x, y) -> {
@@ -139,6 +123,80 @@ public class MtgAwtImageUtils {
 		};
 	}
 
+	/**
+	 * A one-dimensional equivalent of {@link #simplifiedGaussian(double)}, for use with the separable resampler.
+	 * @param sigma The standard deviation of the Gaussian, in source pixels.
+	 * @return A one-dimensional Gaussian kernel.
+	 */
+	public static DoubleUnaryOperator simplifiedGaussianKernel(double sigma) {
+		final double[] precomp = new double[(int) Math.ceil(6*sigma)];
+
+		for (int i = 0; i < precomp.length; ++i) {
+			precomp[i] = 1/Math.sqrt(2*Math.PI*sigma*sigma)*Math.exp(-(i*i)/(2*sigma*sigma));
+		}
+
+		return x -> {
+			final int ix = (int) Math.round(Math.abs(x));
+			return ix >= precomp.length ? 0.0 : precomp[ix];
+		};
+	}
+
+	/**
+	 * A one-dimensional Lanczos kernel, for use with the separable resampler. Unlike {@link #lanczos(int)}, which is
+	 * radial, the product of this kernel in each axis is the usual (separable) two-dimensional Lanczos kernel.
+	 * @param a The size of the kernel's window.
+	 * @return A one-dimensional Lanczos kernel.
+	 */
+	public static DoubleUnaryOperator lanczosKernel(int a) {
+		return x -> {
+			if (x < -a || x > a) {
+				return 0.0;
+			} else if (x == 0.0) {
+				return 1.0;
+			} else {
+				final double pix = Math.PI*x;
+
+				return a*Math.sin(pix)*Math.sin(pix/a)/(pix*pix);
+			}
+		};
+	}
+
+	public static BufferedImage convolveSeparable(BufferedImage source, DoubleUnaryOperator kernel, int a) {
+		return resampleSeparable(source, source.getWidth(), source.getHeight(), kernel, a);
+	}
+
+	public static BufferedImage convolveSeparable(BufferedImage source, ResampleKernel kernel) {
+		return resampleSeparable(source, source.getWidth(), source.getHeight(), kernel);
+	}
+
+	/**
+	 * Resamples an image to the given size using a separable kernel: first horizontally, then vertically. Each pass
+	 * only evaluates <code>a</code> weights per pixel, from tables precomputed once per row and column, rather than
+	 * <code>a</code>&sup2; kernel calls per pixel.
+	 * @param source The image to resample.
+	 * @param w The destination width.
+	 * @param h The destination height.
+	 * @param kernel The one-dimensional resampling kernel, e.g. {@link #lanczosKernel(int)}.
+	 * @param a The kernel's radius, in source pixels.
+	 * @return The resampled image.
+	 */
+	public static BufferedImage resampleSeparable(BufferedImage source, int w, int h, DoubleUnaryOperator kernel, int a) {
+		return resampleSeparable(source, w, h, ResampleKernel.of(kernel, a));
+	}
+
+	/**
+	 * Resamples an image to the given size using a separable kernel, reusing the kernel's weight tables from any
+	 * previous resample between the same dimensions.
+	 * @param source The image to resample.
+	 * @param w The destination width.
+	 * @param h The destination height.
+	 * @param kernel The resampling kernel, e.g. {@link ResampleKernel#lanczos(int)}.
+	 * @return The resampled image.
+	 */
+	public static BufferedImage resampleSeparable(BufferedImage source, int w, int h, ResampleKernel kernel) {
+		return PixelBuffer.of(source).resample(w, h, kernel).toImage();
+	}
+
 	// TODO: Rewrite all this to use ordinary byte arrays?
 
 	public static BufferedImage convolve(BufferedImage source, DoubleBinaryOperator kernel, int a) {
@@ -146,6 +204,22 @@ public class MtgAwtImageUtils {
 	}
 
 	public static BufferedImage resample(BufferedImage source, int w, int h, DoubleBinaryOperator kernel, int a) {
+		return resample(source, w, h, kernel, a, DEFAULT_BAND_ROWS, w * h <= DEFAULT_INLINE_PIXELS);
+	}
+
+	/**
+	 * Resamples an image to the given size, splitting the destination into bands of rows which are processed in
+	 * parallel on the image op pool.
+	 * @param source The image to resample.
+	 * @param w The destination width.
+	 * @param h The destination height.
+	 * @param kernel The two-dimensional resampling kernel.
+	 * @param a The kernel's radius, in source pixels.
+	 * @param bandRows The number of destination rows in each unit of parallel work.
+	 * @param inline If true, do all the work on the calling thread instead.
+	 * @return The resampled image.
+	 */
+	public static BufferedImage resample(BufferedImage source, int w, int h, DoubleBinaryOperator kernel, int a, int bandRows, boolean inline) {
 		final int sourceW = source.getWidth();
 		final int sourceH = source.getHeight();
 
@@ -155,83 +229,81 @@ public class MtgAwtImageUtils {
 		BufferedImage destination = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
 		int[] destBuffer = ((DataBufferInt) destination.getRaster().getDataBuffer()).getData();
 
-		try {
-			IMAGE_OP_POOL.submit(() -> {
-				for (int y = 0; y < h; ++y) {
-					for (int x = 0; x < w; ++x) {
-						final double sourceX = x * ((double) source.getWidth() / w);
-						final double sourceY = y * ((double) source.getHeight() / h);
-
-						final int windowX1 = Math.max(0, (int) Math.floor(sourceX) - a + 1);
-						final int windowY1 = Math.max(0, (int) Math.floor(sourceY) - a + 1);
-
-						final int windowX2 = Math.min((int) Math.floor(sourceX) + a - 1, sourceW - 1);
-						final int windowY2 = Math.min((int) Math.floor(sourceY) + a - 1, sourceH - 1);
-
-						double accumR = 0, accumG = 0, accumB = 0, accumA = 0;
-						double accumF = 0.0;
-						for (int ay = windowY1; ay <= windowY2; ++ay) {
-							for (int ax = windowX1; ax <= windowX2; ++ax) {
-								final int xyi = (ay*sourceW + ax)*srcStride;
-
-								int alpha = 0xFF;
-								if (srcStride >= 4) {
-									alpha = srcBuffer[xyi + 3] & 0xFF;
-								}
-								int r = srcBuffer[xyi + 2] & 0xFF;
-								int g = srcBuffer[xyi + 1] & 0xFF;
-								int b = srcBuffer[xyi] & 0xFF;
-
-								double f = kernel.applyAsDouble(sourceX - ax, sourceY - ay);
-
-								accumF += f;
-								if (srcStride >= 4) {
-									accumA += alpha * f;
-								} else {
-									accumA += 255.0;
-								}
-								accumR += r * f;
-								accumG += g * f;
-								accumB += b * f;
+		// Source positions and windows only depend on the column or row, so compute them once up front.
+		final double[] sourceXs = new double[w];
+		final int[] windowX1s = new int[w], windowX2s = new int[w];
+		for (int x = 0; x < w; ++x) {
+			sourceXs[x] = x * ((double) sourceW / w);
+			windowX1s[x] = Math.max(0, (int) Math.floor(sourceXs[x]) - a + 1);
+			windowX2s[x] = Math.min((int) Math.floor(sourceXs[x]) + a - 1, sourceW - 1);
+		}
+
+		parallelRows(h, bandRows, inline, (y1, y2) -> {
+			for (int y = y1; y < y2; ++y) {
+				final double sourceY = y * ((double) sourceH / h);
+				final int windowY1 = Math.max(0, (int) Math.floor(sourceY) - a + 1);
+				final int windowY2 = Math.min((int) Math.floor(sourceY) + a - 1, sourceH - 1);
+
+				for (int x = 0; x < w; ++x) {
+					final double sourceX = sourceXs[x];
+					final int windowX1 = windowX1s[x], windowX2 = windowX2s[x];
+
+					double accumR = 0, accumG = 0, accumB = 0, accumA = 0;
+					double accumF = 0.0;
+					for (int ay = windowY1; ay <= windowY2; ++ay) {
+						for (int ax = windowX1; ax <= windowX2; ++ax) {
+							final int xyi = (ay*sourceW + ax)*srcStride;
+
+							int alpha = 0xFF;
+							if (srcStride >= 4) {
+								alpha = srcBuffer[xyi + 3] & 0xFF;
 							}
-						}
+							int r = srcBuffer[xyi + 2] & 0xFF;
+							int g = srcBuffer[xyi + 1] & 0xFF;
+							int b = srcBuffer[xyi] & 0xFF;
 
-						byte alpha = (byte) 0xFF;
-						if (srcStride >= 4) {
-							alpha = (byte) Math.max(0, Math.min((int) (accumA / accumF), 0xFF));
-						}
-						byte red = (byte) Math.max(0, Math.min((int) (accumR / accumF), 0xFF));
-						byte green = (byte) Math.max(0, Math.min((int) (accumG / accumF), 0xFF));
-						byte blue = (byte) Math.max(0, Math.min((int) (accumB / accumF), 0xFF));
+							double f = kernel.applyAsDouble(sourceX - ax, sourceY - ay);
 
-						int packed = Byte.toUnsignedInt(alpha) << 24 |
-								Byte.toUnsignedInt(red) |
-								Byte.toUnsignedInt(green) << 8 |
-								Byte.toUnsignedInt(blue) << 16;
+							accumF += f;
+							if (srcStride >= 4) {
+								accumA += alpha * f;
+							} else {
+								accumA += 255.0;
+							}
+							accumR += r * f;
+							accumG += g * f;
+							accumB += b * f;
+						}
+					}
 
-						destBuffer[y * w + x] = packed;
+					byte alpha = (byte) 0xFF;
+					if (srcStride >= 4) {
+						alpha = (byte) Math.max(0, Math.min((int) (accumA / accumF), 0xFF));
 					}
+					byte red = (byte) Math.max(0, Math.min((int) (accumR / accumF), 0xFF));
+					byte green = (byte) Math.max(0, Math.min((int) (accumG / accumF), 0xFF));
+					byte blue = (byte) Math.max(0, Math.min((int) (accumB / accumF), 0xFF));
+
+					int packed = Byte.toUnsignedInt(alpha) << 24 |
+							Byte.toUnsignedInt(red) |
+							Byte.toUnsignedInt(green) << 8 |
+							Byte.toUnsignedInt(blue) << 16;
+
+					destBuffer[y * w + x] = packed;
 				}
-			}).get();
-		} catch (InterruptedException ie) {
-			ie.printStackTrace();
-			throw new Error(ie);
-		} catch (ExecutionException ee) {
-			ee.getCause().printStackTrace();
-			throw new Error(ee.getCause());
-		}
+			}
+		});
 
 		return destination;
 	}
 
 	public static BufferedImage scaled(BufferedImage source, double w, double h, boolean smooth) {
-		BufferedImage out = source;
+		PixelBuffer out = PixelBuffer.of(source);
 		if (smooth) {
-			out = convolve(out, simplifiedGaussian(1.0), 3);
+			out = out.convolve(ResampleKernel.gaussian(1.0, 3));
 		}
-		out = resample(out, (int) w, (int) h, lanczos(3), 3);
 
-		return out;
+		return out.resample((int) w, (int) h, ResampleKernel.lanczos(3)).toImage();
 	}
 
 	public static BufferedImage combined(BufferedImage source1, int x11, int y11, int x12, int y12, BufferedImage source2, int x21, int y21, int x22, int y22) {
@@ -249,7 +321,18 @@ public class MtgAwtImageUtils {
 		return output;
 	}
 
+	/**
+	 * Rotates an image about its center. Multiples of 90 degrees are rotated exactly via {@link PixelBuffer#rotate};
+	 * other angles are interpolated bicubically.
+	 * @param source The image to rotate.
+	 * @param rotation The angle to rotate by, in degrees counterclockwise.
+	 * @return The rotated image, large enough to contain the whole source image.
+	 */
 	public static BufferedImage rotated(BufferedImage source, double rotation) {
+		if (rotation % 90.0 == 0.0) {
+			return PixelBuffer.of(source).rotate((int) (-rotation / 90.0)).toImage();
+		}
+
 		double radians = rotation * Math.PI / 180.0;
 		int w = (int) (source.getWidth() * Math.abs(Math.cos(radians)) + source.getHeight() * Math.abs(Math.sin(radians)));
 		int h = (int) (source.getWidth() * Math.abs(Math.sin(radians)) + source.getHeight() * Math.abs(Math.cos(radians)));
@@ -264,61 +347,56 @@ public class MtgAwtImageUtils {
 		return ((pixel & 0xFF) + ((pixel & 0xFF00) >> 8)  + ((pixel & 0xFF0000) >> 16)) / 3.0;
 	}
 
-	// TODO: This is a naive implementation.
-	private static double stdDev(int[] rgb, int start, int count, int stride) {
-		double sum = 0, sumOfSquares = 0;
-
-		for (int pixel = start; pixel < start + count; pixel += stride) {
-			double v = rgbValue(rgb[pixel]);
-			sum += v;
-			sumOfSquares += v * v;
+	/**
+	 * The sum and sum of squares of the {@link #rgbValue}s of each row of a region of an image, computed once in a
+	 * single parallel pass so that the deviation of any row can be found in constant time.
+	 */
+	private static final class RowStats {
+		private final int y0, width;
+		private final double[] sum, sumOfSquares;
+
+		private RowStats(PixelBuffer source, int x0, int y0, int x1, int y1) {
+			this.y0 = y0;
+			this.width = x1 - x0;
+			this.sum = new double[y1 - y0];
+			this.sumOfSquares = new double[y1 - y0];
+
+			parallelRows(y1 - y0, DEFAULT_BAND_ROWS, (long) width * sum.length <= DEFAULT_INLINE_PIXELS, (r1, r2) -> {
+				for (int r = r1; r < r2; ++r) {
+					final int row = (y0 + r) * source.width;
+					double s = 0, sq = 0;
+					for (int x = x0; x < x1; ++x) {
+						final double v = rgbValue(source.pixels[row + x]);
+						s += v;
+						sq += v * v;
+					}
+					sum[r] = s;
+					sumOfSquares[r] = sq;
+				}
+			});
 		}
 
-		return Math.sqrt(count * sumOfSquares - sum * sum) / count;
+		private double stdDev(int y) {
+			final double s = sum[y - y0], sq = sumOfSquares[y - y0];
+			return Math.sqrt(Math.max(0.0, width * sq - s * s)) / width;
+		}
 	}
 
 	private static final double BORDER_DEVIATION = 0.020 * 0xFF; // Split dividers (border colored) are extremely even in color, at least if they have black borders.
 	private static final double FRAME_DEVIATION = 0.050 * 0xFF; // Card frames are a bit rougher,
 
-	private static int findHLine(BufferedImage source, int left, int yStart, int right, int yStop, double maxDeviation) {
-		final int width = Math.abs(right - left);
-		final int x0 = Math.min(left, right);
-		final int height = Math.abs(yStop - yStart);
-		final int[] rgb = new int[right * height];
-		source.getRGB(x0, Math.min(yStart, yStop), width, height, rgb, 0, width);
-
-		if (yStart < yStop) {
-			for (int y = yStart; y < yStop; ++y) {
-				if (stdDev(rgb, width * (y - yStart), width, 1) < maxDeviation) {
-					return y;
-				}
-			}
-		} else if (yStart > yStop) {
-			for (int y = yStart - 1; y >= yStop; --y) {
-				if (stdDev(rgb, width * (y - yStop), width, 1) < maxDeviation) {
-					return y;
-				}
-			}
-		}
-
-		return -1;
-	}
-
-	private static int findHDivider(BufferedImage source, int xStart, int yStart, int xStop, int yStop, double sigma) {
+	private static int findHDivider(PixelBuffer source, int xStart, int yStart, int xStop, int yStop, double sigma) {
 		final int x0 = Math.min(xStart, xStop);
 		final int x1 = Math.max(xStart, xStop);
-		final int width = x1 - x0;
 		final int y0 = Math.min(yStart, yStop);
 		final int y1 = Math.max(yStart, yStop);
-		final int height = y1 - y0;
+		if (x0 == x1 || y0 == y1) return -1;
 
-		final int[] rgb = new int[width * height];
-		source.getRGB(x0, y0, width, height, rgb, 0, width);
+		final RowStats stats = new RowStats(source, x0, y0, x1, y1);
 
 		int top = -1;
 		for (int y = y0; y < y1; ++y) {
-			double dev = stdDev(rgb, width * (y - y0), width, 1);
-			if (dev < sigma) {
+			if (stats.stdDev(y) < sigma) {
 				top = y;
 				break;
 			}
@@ -327,9 +405,8 @@ public class MtgAwtImageUtils {
 		if (top < 0) return -1;
 
 		int bottom = -1;
-		for (int y = y1 - 1; y >= y0; --y) {
-			double dev = stdDev(rgb, width * (y - y0), width, 1);
-			if (dev < sigma) {
+		for (int y = y1 - 1; y >= top; --y) {
+			if (stats.stdDev(y) < sigma) {
 				bottom = y;
 				break;
 			}
@@ -340,22 +417,96 @@ public class MtgAwtImageUtils {
 		return (top + bottom) / 2;
 	}
 
+	/**
+	 * How far either side of a standard frame's divider position to search for the actual divider, as a fraction of
+	 * the card's height.
+	 */
+	private static final double DIVIDER_SEARCH = 0.06;
+
+	private static double detectHDivider(PixelBuffer full, double expected, double sigma) {
+		// Stay inside the card's border, so only the divider itself is measured.
+		final int inset = (int) Math.ceil(BORDER_WIDTH * full.width) + 1;
+		final int yStart = Math.max(0, (int) ((expected - DIVIDER_SEARCH) * full.height));
+		final int yStop = Math.min(full.height, (int) Math.ceil((expected + DIVIDER_SEARCH) * full.height));
+
+		final int y = findHDivider(full, inset, yStart, full.width - inset, yStop, sigma);
+		return y < 0 ? Double.NaN : (y + 0.5) / full.height;
+	}
+
+	/**
+	 * Finds the divider between the two halves of an upright image of a full split card, for prints whose frame data
+	 * is missing or wrong. The halves' frames can then be built with the divider position as the top and bottom margins.
+	 * @param full An upright image of the full split card.
+	 * @return The position of the divider as a fraction of the card's height from the top, or NaN if none was found.
+	 */
+	public static double detectSplitDivider(BufferedImage full) {
+		return detectSplitDivider(PixelBuffer.of(full));
+	}
+
+	public static double detectSplitDivider(PixelBuffer full) {
+		return detectHDivider(full, StandardFrame.SplitLeftFull.top(), BORDER_DEVIATION);
+	}
+
+	/**
+	 * Finds the divider between the top and bottom halves of an upright image of a full aftermath card, for prints whose
+	 * frame data is missing or wrong.
+	 * @param full An upright image of the full aftermath card.
+	 * @return The position of the divider as a fraction of the card's height from the top, or NaN if none was found.
+	 */
+	public static double detectAftermathDivider(BufferedImage full) {
+		return detectAftermathDivider(PixelBuffer.of(full));
+	}
+
+	public static double detectAftermathDivider(PixelBuffer full) {
+		return detectHDivider(full, 1.0 - StandardFrame.AftermathTop.bottom(), FRAME_DEVIATION);
+	}
+
 	public static BufferedImage faceFromFull(Card.Print.Face printedFace, BufferedImage full) {
-		BufferedImage tmp = full;
+		return faceFromFull(printedFace, PixelBuffer.of(full), true).toImage();
+	}
+
+	/**
+	 * Extracts an upright image of a face from an image of the full card, per the face's frame.
+	 * @param printedFace The printed face to extract.
+	 * @param full The full card image. Not modified.
+	 * @return A new buffer containing the face, with its corners cleared.
+	 */
+	public static PixelBuffer faceFromFull(Card.Print.Face printedFace, PixelBuffer full) {
+		return faceFromFull(printedFace, full, false);
+	}
+
+	private static PixelBuffer faceFromFull(Card.Print.Face printedFace, PixelBuffer full, boolean owned) {
+		PixelBuffer tmp = full;
 
 		Card.Print.Face.Frame frame = printedFace.frame();
 		if (frame.left() > 0 || frame.right() > 0 || frame.top() > 0 || frame.bottom() > 0)
-			tmp = subsection(tmp, (int) (frame.left() * full.getWidth()), (int) (frame.top() * full.getHeight()),
-					(int) ((1.0 - frame.right()) * full.getWidth()), (int) ((1.0 - frame.bottom()) * full.getHeight()));
+			tmp = tmp.crop((int) (frame.left() * full.width), (int) (frame.top() * full.height),
+					(int) ((1.0 - frame.right()) * full.width), (int) ((1.0 - frame.bottom()) * full.height));
 
 		if (frame.rotation() != 0)
-			tmp = rotated(tmp, -90.0 * frame.rotation());
+			tmp = tmp.rotate(frame.rotation());
+
+		// Every path above copies, except for a full face with no rotation.
+		if (tmp == full && !owned)
+			tmp = tmp.crop(0, 0, full.width, full.height);
 
-		return clearCorners(tmp);
+		return tmp.clearCorners();
 	}
 
 	public static BufferedImage meldedFace(Card.Print.Face printedFace, BufferedImage top, BufferedImage bottom) {
-		return clearCorners(rotated(combined(bottom, 0, 0, bottom.getWidth(), bottom.getHeight(),
-				top, bottom.getWidth(), 0, bottom.getWidth() + top.getWidth(), top.getHeight()), -90.0 * StandardFrame.Meld.rotation()));
+		return meldedFace(printedFace, PixelBuffer.of(top), PixelBuffer.of(bottom)).toImage();
+	}
+
+	/**
+	 * Assembles an upright image of a melded face from the backs of its two halves.
+	 * @param printedFace The printed melded face.
+	 * @param top The back of the top half of the melded card. Not modified.
+	 * @param bottom The back of the bottom half of the melded card. Not modified.
+	 * @return A new buffer containing the melded face, with its corners cleared.
+	 */
+	public static PixelBuffer meldedFace(Card.Print.Face printedFace, PixelBuffer top, PixelBuffer bottom) {
+		return PixelBuffer.beside(bottom, top)
+				.rotate(StandardFrame.Meld.rotation())
+				.clearCorners();
 	}
 }
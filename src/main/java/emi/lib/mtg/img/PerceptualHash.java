@@ -0,0 +1,132 @@
+package emi.lib.mtg.img;
+
+import emi.lib.mtg.Card;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * A DCT-based perceptual hash of card art. The art box is shrunk to 32&times;32 grayscale pixels, and the lowest 8&times;8
+ * frequencies of its discrete cosine transform are compared against their median, giving 64 bits. Similar images
+ * produce hashes a small Hamming distance apart, regardless of resolution, compression or slight color shifts, so a
+ * photo or scan of a card can be matched to the print whose art it shows.
+ *
+ * Only the art box is hashed: frames, text and set symbols are nearly identical across many prints and would swamp the
+ * difference between them.
+ */
+public final class PerceptualHash {
+	private static final int SIZE = 32;
+	private static final int FREQUENCIES = 8;
+
+	/**
+	 * The location of the art box within an upright card face, as fractions of the face's width and height from each
+	 * edge. These suit most modern and old-border frames closely enough for hashing.
+	 */
+	public static final double ART_LEFT = 0.08, ART_RIGHT = 0.08, ART_TOP = 0.11, ART_BOTTOM = 0.44;
+
+	private static final double[][] COSINES = new double[FREQUENCIES][SIZE];
+
+	static {
+		for (int u = 0; u < FREQUENCIES; ++u) {
+			for (int x = 0; x < SIZE; ++x) {
+				COSINES[u][x] = Math.cos((2 * x + 1) * u * Math.PI / (2 * SIZE));
+			}
+		}
+	}
+
+	private PerceptualHash() {
+	}
+
+	/**
+	 * Extracts the art box of a printed face from an image of the full card.
+	 * @param face The printed face whose art to extract. Its frame determines where on the card the face lies.
+	 * @param full An image of the full card.
+	 * @return A new buffer containing the face's art, upright.
+	 */
+	public static PixelBuffer artBox(Card.Print.Face face, PixelBuffer full) {
+		return artBox(MtgAwtImageUtils.faceFromFull(face, full));
+	}
+
+	/**
+	 * Extracts the art box of an upright card face.
+	 * @param face An upright image of a single card face.
+	 * @return A new buffer containing the face's art.
+	 */
+	public static PixelBuffer artBox(PixelBuffer face) {
+		return face.crop((int) (ART_LEFT * face.width), (int) (ART_TOP * face.height),
+				(int) ((1.0 - ART_RIGHT) * face.width), (int) ((1.0 - ART_BOTTOM) * face.height));
+	}
+
+	/**
+	 * Hashes the art of a printed face.
+	 * @param face The printed face whose art to hash.
+	 * @param full An image of the full card.
+	 * @return The perceptual hash of the face's art.
+	 */
+	public static long hash(Card.Print.Face face, BufferedImage full) {
+		return hash(artBox(face, PixelBuffer.of(full)));
+	}
+
+	/**
+	 * Hashes the art of an image of an ordinary, single-faced card, e.g. a photo or scan to identify. The image should
+	 * be cropped to the card and upright.
+	 * @param card An image of a card.
+	 * @return The perceptual hash of the card's art.
+	 */
+	public static long hashCard(BufferedImage card) {
+		return hash(artBox(PixelBuffer.of(card)));
+	}
+
+	/**
+	 * Hashes an image as-is.
+	 * @param image The image to hash, e.g. an art box.
+	 * @return The image's perceptual hash.
+	 */
+	public static long hash(PixelBuffer image) {
+		final PixelBuffer small = new ThumbnailPyramid(image).resample(SIZE, SIZE);
+
+		final double[] luma = new double[SIZE * SIZE];
+		for (int i = 0; i < luma.length; ++i) {
+			final int argb = small.pixels[i];
+			luma[i] = 0.299 * ((argb >> 16) & 0xFF) + 0.587 * ((argb >> 8) & 0xFF) + 0.114 * (argb & 0xFF);
+		}
+
+		// Separable DCT, keeping only the lowest frequencies: first along each row, then down each column.
+		final double[] rows = new double[SIZE * FREQUENCIES];
+		for (int y = 0; y < SIZE; ++y) {
+			for (int u = 0; u < FREQUENCIES; ++u) {
+				double sum = 0.0;
+				for (int x = 0; x < SIZE; ++x) sum += luma[y * SIZE + x] * COSINES[u][x];
+				rows[y * FREQUENCIES + u] = sum;
+			}
+		}
+
+		final double[] dct = new double[FREQUENCIES * FREQUENCIES];
+		for (int v = 0; v < FREQUENCIES; ++v) {
+			for (int u = 0; u < FREQUENCIES; ++u) {
+				double sum = 0.0;
+				for (int y = 0; y < SIZE; ++y) sum += rows[y * FREQUENCIES + u] * COSINES[v][y];
+				dct[v * FREQUENCIES + u] = sum;
+			}
+		}
+
+		// The DC term reflects overall brightness only; leave it out of the median.
+		final double[] ac = new double[dct.length - 1];
+		System.arraycopy(dct, 1, ac, 0, ac.length);
+		Arrays.sort(ac);
+		final double median = ac[ac.length / 2];
+
+		long hash = 0;
+		for (int i = 0; i < dct.length; ++i) {
+			if (dct[i] > median) hash |= 1L << i;
+		}
+		return hash;
+	}
+
+	/**
+	 * @return The number of bits by which two hashes differ.
+	 */
+	public static int distance(long a, long b) {
+		return Long.bitCount(a ^ b);
+	}
+}
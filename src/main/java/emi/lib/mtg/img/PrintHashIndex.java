@@ -0,0 +1,270 @@
+package emi.lib.mtg.img;
+
+import emi.lib.mtg.Card;
+import emi.lib.mtg.ImageSource;
+
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleConsumer;
+
+/**
+ * An index of the {@link PerceptualHash}es of card prints' art, for identifying the print shown in a photo or scan.
+ * Hashes are searched by multi-index hashing: each 64-bit hash is split into four 16-bit quarters, and each quarter is
+ * indexed in its own table. If two hashes differ by at most <code>r</code> bits, at least one of their quarters differs
+ * by at most <code>r / 4</code> bits (by the pigeonhole principle), so a search only needs to probe each table for the
+ * few keys near the corresponding quarter of the query, then check the full distance of the candidates it finds.
+ *
+ * Indices are immutable, and can be searched from any number of threads. They're built in parallel from an image
+ * source, and can be saved to and loaded from disk so they needn't be rebuilt each time.
+ */
+public class PrintHashIndex {
+	/**
+	 * The typical number of bits by which hashes of the same art differ between a clean scan and a reasonable photo.
+	 */
+	public static final int DEFAULT_MAX_DISTANCE = 10;
+
+	/**
+	 * Card images are opened at this size for hashing; the art box is shrunk to 32&times;32 anyway.
+	 */
+	private static final int HASH_IMAGE_WIDTH = 252, HASH_IMAGE_HEIGHT = 352;
+
+	private static final int STORE_VERSION = 1;
+
+	/**
+	 * A hashed printed face.
+	 */
+	public static final class Entry {
+		public final Card.Print.Reference print;
+		public final String face;
+		public final long hash;
+
+		public Entry(Card.Print.Reference print, String face, long hash) {
+			this.print = Objects.requireNonNull(print);
+			this.face = Objects.requireNonNull(face);
+			this.hash = hash;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s // %s [%016x]", print.format(), face, hash);
+		}
+	}
+
+	/**
+	 * An entry found by a search, and its distance from the searched-for hash.
+	 */
+	public static final class Match {
+		public final Entry entry;
+		public final int distance;
+
+		public Match(Entry entry, int distance) {
+			this.entry = entry;
+			this.distance = distance;
+		}
+
+		@Override
+		public String toString() {
+			return entry + " @ " + distance;
+		}
+	}
+
+	private static final int TABLES = 4;
+	private static final int KEY_BITS = Long.SIZE / TABLES;
+	private static final int KEYS = 1 << KEY_BITS;
+
+	private final Entry[] entries;
+	private final long[] hashes;
+
+	/**
+	 * For each table, the indices of the entries sorted by that table's quarter of their hash; entries whose quarter is
+	 * <code>k</code> are <code>ids[t][offsets[t][k]]</code> through <code>ids[t][offsets[t][k + 1] - 1]</code>.
+	 */
+	private final int[][] offsets, ids;
+
+	public PrintHashIndex(Collection<Entry> entries) {
+		this.entries = entries.toArray(new Entry[0]);
+		this.hashes = new long[this.entries.length];
+		for (int i = 0; i < hashes.length; ++i) hashes[i] = this.entries[i].hash;
+
+		this.offsets = new int[TABLES][KEYS + 1];
+		this.ids = new int[TABLES][hashes.length];
+
+		for (int t = 0; t < TABLES; ++t) {
+			// Counting sort by key.
+			final int[] offset = offsets[t];
+			for (long hash : hashes) ++offset[key(hash, t) + 1];
+			for (int k = 0; k < KEYS; ++k) offset[k + 1] += offset[k];
+
+			final int[] next = Arrays.copyOf(offset, KEYS);
+			for (int i = 0; i < hashes.length; ++i) ids[t][next[key(hashes[i], t)]++] = i;
+		}
+	}
+
+	private static int key(long hash, int table) {
+		return (int) (hash >>> (table * KEY_BITS)) & (KEYS - 1);
+	}
+
+	public int size() {
+		return entries.length;
+	}
+
+	/**
+	 * @return Every entry in this index.
+	 */
+	public List<Entry> entries() {
+		return Collections.unmodifiableList(Arrays.asList(entries));
+	}
+
+	/**
+	 * Finds every entry within a given Hamming distance of a hash.
+	 * @param hash The hash to search for.
+	 * @param maxDistance The maximum number of bits by which matches may differ from the hash.
+	 * @return The matching entries, nearest first.
+	 */
+	public List<Match> search(long hash, int maxDistance) {
+		final int subDistance = Math.min(KEY_BITS, maxDistance / TABLES);
+		final BitSet seen = new BitSet(entries.length);
+		final List<Match> matches = new ArrayList<>();
+
+		for (int t = 0; t < TABLES; ++t) {
+			probe(t, key(hash, t), 0, subDistance, hash, maxDistance, seen, matches);
+		}
+
+		matches.sort(Comparator.comparingInt(m -> m.distance));
+		return matches;
+	}
+
+	/**
+	 * Checks every entry whose key in table <code>t</code> is <code>key</code>, then recurses into each key which
+	 * differs from it by flipping one more bit, at or above <code>fromBit</code>, while the budget lasts.
+	 */
+	private void probe(int t, int key, int fromBit, int budget, long hash, int maxDistance, BitSet seen, List<Match> matches) {
+		final int[] offset = offsets[t], id = ids[t];
+		for (int j = offset[key]; j < offset[key + 1]; ++j) {
+			final int i = id[j];
+			if (seen.get(i)) continue;
+			seen.set(i);
+
+			final int d = PerceptualHash.distance(hashes[i], hash);
+			if (d <= maxDistance) matches.add(new Match(entries[i], d));
+		}
+
+		if (budget == 0) return;
+		for (int bit = fromBit; bit < KEY_BITS; ++bit) {
+			probe(t, key ^ (1 << bit), bit + 1, budget - 1, hash, maxDistance, seen, matches);
+		}
+	}
+
+	/**
+	 * Identifies the print shown in an image of an ordinary card. See {@link PerceptualHash#hashCard}.
+	 * @param card An upright image of a card, cropped to the card's edges.
+	 * @param maxDistance The maximum number of bits by which matches may differ.
+	 * @return The candidate prints, nearest first.
+	 */
+	public List<Match> identify(BufferedImage card, int maxDistance) {
+		return search(PerceptualHash.hashCard(card), maxDistance);
+	}
+
+	/**
+	 * Hashes the front faces of every given print in parallel.
+	 * @param prints The prints to hash.
+	 * @param source The image source from which to open the prints' images.
+	 * @param pool The fork-join pool on which to hash.
+	 * @param progress Optional callback to report progress (0-1).
+	 * @return An index of every print's front faces. Prints whose images couldn't be found or opened are left out.
+	 */
+	public static PrintHashIndex build(Collection<? extends Card.Print> prints, ImageSource source, ForkJoinPool pool, DoubleConsumer progress) {
+		List<Card.Print> list = new ArrayList<>(prints);
+		Queue<Entry> entries = new ConcurrentLinkedQueue<>();
+		AtomicInteger done = new AtomicInteger(0);
+
+		try {
+			pool.submit(() -> list.parallelStream().forEach(print -> {
+				try {
+					hash(print, source, entries);
+				} catch (IOException ioe) {
+					ioe.printStackTrace();
+				}
+
+				done.incrementAndGet();
+				if (progress != null) {
+					synchronized (progress) {
+						// Read under the lock, so reports never go backwards however threads interleave.
+						progress.accept((double) done.get() / list.size());
+					}
+				}
+			})).get();
+		} catch (InterruptedException ie) {
+			ie.printStackTrace();
+			throw new Error(ie);
+		} catch (ExecutionException ee) {
+			ee.getCause().printStackTrace();
+			throw new Error(ee.getCause());
+		}
+
+		return new PrintHashIndex(entries);
+	}
+
+	private static void hash(Card.Print print, ImageSource source, Queue<Entry> entries) throws IOException {
+		BufferedImage image = source.open(print, HASH_IMAGE_WIDTH, HASH_IMAGE_HEIGHT);
+		if (image == null) return;
+
+		PixelBuffer full = PixelBuffer.of(image);
+		Card.Print.Reference reference = print.reference();
+		for (Card.Print.Face face : print.faces()) {
+			if (face.onBack()) continue;
+			entries.add(new Entry(reference, face.face().name(), PerceptualHash.hash(PerceptualHash.artBox(face, full))));
+		}
+	}
+
+	/**
+	 * Writes this index to a file, replacing it atomically.
+	 * @param store The file to write.
+	 * @throws IOException If an error occurs while writing the index.
+	 */
+	public void save(Path store) throws IOException {
+		Path tmp = store.resolveSibling(store.getFileName() + ".tmp");
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+			out.writeInt(STORE_VERSION);
+			out.writeInt(entries.length);
+			for (Entry entry : entries) {
+				out.writeLong(entry.hash);
+				out.writeUTF(entry.print.name());
+				out.writeUTF(entry.print.setCode());
+				out.writeUTF(entry.print.collectorNumber());
+				out.writeUTF(entry.face);
+			}
+		}
+
+		Files.move(tmp, store, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Reads an index previously written by {@link #save}.
+	 * @param store The file to read.
+	 * @return The index stored in the file.
+	 * @throws IOException If the file couldn't be read, or was written by an incompatible version.
+	 */
+	public static PrintHashIndex load(Path store) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(store)))) {
+			int version = in.readInt();
+			if (version != STORE_VERSION) throw new IOException(String.format("Unsupported print hash index version %d in %s", version, store));
+
+			int count = in.readInt();
+			List<Entry> entries = new ArrayList<>(count);
+			for (int i = 0; i < count; ++i) {
+				long hash = in.readLong();
+				Card.Print.Reference print = Card.Print.Reference.to(in.readUTF(), in.readUTF(), in.readUTF());
+				entries.add(new Entry(print, in.readUTF(), hash));
+			}
+			return new PrintHashIndex(entries);
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package emi.lib.mtg.img;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A one-dimensional resampling kernel which materializes its weights into tables. The tables for a given source and
+ * destination size are computed once and reused for every row and column of every image of those dimensions, so the
+ * resampler's inner loops only ever read arrays; the kernel function itself is only called while building a table.
+ *
+ * Kernels obtained from {@link #lanczos(int)} and {@link #gaussian(double, int)} are shared, along with their tables.
+ */
+public abstract class ResampleKernel {
+	private static final int MAX_CACHED_TABLES = 64;
+
+	private static final Map<Integer, ResampleKernel> LANCZOS = new ConcurrentHashMap<>();
+	private static final Map<Integer, Map<Double, ResampleKernel>> GAUSSIAN = new ConcurrentHashMap<>();
+
+	/**
+	 * The normalized weights of a kernel for each destination pixel along one axis. Destination pixel <code>i</code>
+	 * is the sum of source pixels <code>start[i]</code> through <code>start[i] + count[i] - 1</code>, weighted by
+	 * <code>weights[i * stride]</code> onward.
+	 */
+	public static final class Weights {
+		final int[] start, count;
+		final float[] weights;
+		final int stride;
+
+		private Weights(ResampleKernel kernel, int sourceSize, int size) {
+			final int a = kernel.radius;
+
+			this.start = new int[size];
+			this.count = new int[size];
+			this.stride = Math.max(1, 2 * a - 1);
+			this.weights = new float[size * stride];
+
+			for (int i = 0; i < size; ++i) {
+				final double source = i * ((double) sourceSize / size);
+				final int window1 = Math.max(0, (int) Math.floor(source) - a + 1);
+				final int window2 = Math.min((int) Math.floor(source) + a - 1, sourceSize - 1);
+
+				start[i] = window1;
+				count[i] = Math.max(0, window2 - window1 + 1);
+
+				double sum = 0.0;
+				for (int k = 0; k < count[i]; ++k) {
+					final double f = kernel.weight(source - (window1 + k));
+					weights[i * stride + k] = (float) f;
+					sum += f;
+				}
+
+				if (sum != 0.0) {
+					for (int k = 0; k < count[i]; ++k) weights[i * stride + k] /= sum;
+				}
+			}
+		}
+	}
+
+	/**
+	 * A Lanczos kernel. The product of this kernel in each axis is the usual separable two-dimensional Lanczos kernel.
+	 * @param a The size of the kernel's window.
+	 * @return A shared Lanczos kernel.
+	 */
+	public static ResampleKernel lanczos(int a) {
+		return LANCZOS.computeIfAbsent(a, x -> of(MtgAwtImageUtils.lanczosKernel(a), a));
+	}
+
+	/**
+	 * A Gaussian kernel, evaluated at whole-pixel distances as in {@link MtgAwtImageUtils#simplifiedGaussian(double)}.
+	 * @param sigma The standard deviation of the Gaussian, in source pixels.
+	 * @param a The size of the kernel's window.
+	 * @return A shared Gaussian kernel.
+	 */
+	public static ResampleKernel gaussian(double sigma, int a) {
+		return GAUSSIAN.computeIfAbsent(a, x -> new ConcurrentHashMap<>())
+				.computeIfAbsent(sigma, x -> of(MtgAwtImageUtils.simplifiedGaussianKernel(sigma), a));
+	}
+
+	/**
+	 * Wraps an arbitrary function as a kernel. Tables are only shared between uses of the returned instance.
+	 * @param function The kernel function.
+	 * @param a The size of the kernel's window.
+	 * @return A kernel evaluating the given function.
+	 */
+	public static ResampleKernel of(DoubleUnaryOperator function, int a) {
+		return new ResampleKernel(a) {
+			@Override
+			public double weight(double x) {
+				return function.applyAsDouble(x);
+			}
+		};
+	}
+
+	private final int radius;
+	private final Map<Long, Weights> tables = new ConcurrentHashMap<>();
+
+	protected ResampleKernel(int radius) {
+		this.radius = radius;
+	}
+
+	/**
+	 * @return The size of this kernel's window, in source pixels.
+	 */
+	public final int radius() {
+		return radius;
+	}
+
+	/**
+	 * Evaluates this kernel.
+	 * @param x The distance from the sample point, in source pixels.
+	 * @return The weight of a source pixel at that distance.
+	 */
+	public abstract double weight(double x);
+
+	/**
+	 * Obtains the weight table for resampling an axis of <code>sourceSize</code> pixels to <code>size</code> pixels,
+	 * computing it if this kernel hasn't been asked for that pair of sizes recently.
+	 * @param sourceSize The length of the axis in the source image.
+	 * @param size The length of the axis in the destination image.
+	 * @return This kernel's weights for that pair of sizes.
+	 */
+	public Weights weights(int sourceSize, int size) {
+		final long key = ((long) sourceSize << 32) | (size & 0xFFFFFFFFL);
+
+		Weights weights = tables.get(key);
+		if (weights != null) return weights;
+
+		weights = new Weights(this, sourceSize, size);
+		if (tables.size() >= MAX_CACHED_TABLES) tables.clear();
+		tables.put(key, weights);
+		return weights;
+	}
+}
@@ -0,0 +1,236 @@
+package emi.lib.mtg.img;
+
+import emi.lib.mtg.Card;
+import emi.lib.mtg.ImageSource;
+import emi.lib.mtg.util.WeightedLruCache;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * A mipmap-style pyramid of successively halved copies of an image. Thumbnails are produced by picking the smallest
+ * level which is still at least as large as the requested size, then doing one exact resample from there. The final
+ * resample therefore never shrinks by more than a factor of two, so it's cheap and doesn't need a pre-blur to avoid
+ * aliasing, unlike {@link MtgAwtImageUtils#scaled} from the full-resolution image.
+ *
+ * Pyramids are immutable and can be shared between threads. See {@link Cache} to keep pyramids and thumbnails of card
+ * prints around between uses.
+ */
+public class ThumbnailPyramid {
+	/**
+	 * Levels are halved until either dimension would fall below this many pixels.
+	 */
+	public static final int MIN_LEVEL_SIZE = 16;
+
+	private final List<PixelBuffer> levels;
+	private final ResampleKernel kernel;
+
+	public ThumbnailPyramid(BufferedImage full) {
+		this(PixelBuffer.of(full));
+	}
+
+	public ThumbnailPyramid(PixelBuffer full) {
+		this(full, ResampleKernel.lanczos(3));
+	}
+
+	/**
+	 * Builds a pyramid from an image.
+	 * @param full The full-size image. The pyramid keeps a reference to this buffer as its first level.
+	 * @param kernel The kernel to use for the final resample to each requested size.
+	 */
+	public ThumbnailPyramid(PixelBuffer full, ResampleKernel kernel) {
+		List<PixelBuffer> levels = new ArrayList<>();
+		levels.add(full);
+
+		PixelBuffer level = full;
+		while (level.width / 2 >= MIN_LEVEL_SIZE && level.height / 2 >= MIN_LEVEL_SIZE) {
+			level = level.halve();
+			levels.add(level);
+		}
+
+		this.levels = Collections.unmodifiableList(levels);
+		this.kernel = kernel;
+	}
+
+	public List<PixelBuffer> levels() {
+		return levels;
+	}
+
+	/**
+	 * Finds the level from which to produce a thumbnail of the given size.
+	 * @return The smallest level which is at least as large as the given size in both dimensions, or the full image if
+	 * the requested size is larger than that.
+	 */
+	public PixelBuffer level(int w, int h) {
+		for (int i = levels.size() - 1; i > 0; --i) {
+			PixelBuffer level = levels.get(i);
+			if (level.width >= w && level.height >= h) return level;
+		}
+
+		return levels.get(0);
+	}
+
+	/**
+	 * Produces a thumbnail of the given size.
+	 * @param w The width of the thumbnail.
+	 * @param h The height of the thumbnail.
+	 * @return A new pixel buffer containing the thumbnail.
+	 */
+	public PixelBuffer resample(int w, int h) {
+		PixelBuffer level = level(w, h);
+		if (level.width == w && level.height == h) return level.crop(0, 0, w, h);
+		return level.resample(w, h, kernel);
+	}
+
+	public BufferedImage scaled(int w, int h) {
+		return resample(w, h).toImage();
+	}
+
+	/**
+	 * @return The total size of all levels, in bytes.
+	 */
+	public long bytes() {
+		long bytes = 0;
+		for (PixelBuffer level : levels) bytes += (long) level.width * level.height * 4;
+		return bytes;
+	}
+
+	/**
+	 * Keeps the pyramids and thumbnails of card prints opened from an image source, bounded by their total size in
+	 * bytes and evicted least-recently-used first. Displaying a print at a size it has been displayed at before is a
+	 * lookup; displaying it at a new size is a small resample from its pyramid, if the pyramid is still cached.
+	 *
+	 * Thumbnails returned from the cache are shared between callers, and must not be modified.
+	 */
+	public static class Cache {
+		private static final class ThumbnailKey {
+			private final Card.Print.Reference print;
+			private final int w, h;
+
+			public ThumbnailKey(Card.Print.Reference print, int w, int h) {
+				this.print = print;
+				this.w = w;
+				this.h = h;
+			}
+
+			@Override
+			public int hashCode() {
+				return Objects.hash(print, w, h);
+			}
+
+			@Override
+			public boolean equals(Object obj) {
+				if (!(obj instanceof ThumbnailKey)) return false;
+				ThumbnailKey other = (ThumbnailKey) obj;
+				return w == other.w && h == other.h && print.equals(other.print);
+			}
+		}
+
+		private static final class PyramidKey {
+			private final Card.Print.Reference print;
+
+			public PyramidKey(Card.Print.Reference print) {
+				this.print = print;
+			}
+
+			@Override
+			public int hashCode() {
+				return print.hashCode();
+			}
+
+			@Override
+			public boolean equals(Object obj) {
+				return obj instanceof PyramidKey && print.equals(((PyramidKey) obj).print);
+			}
+		}
+
+		private static final class Entry {
+			private final Object value;
+			private final long bytes;
+
+			public Entry(Object value, long bytes) {
+				this.value = value;
+				this.bytes = bytes;
+			}
+		}
+
+		private final ImageSource source;
+		private final WeightedLruCache<Object, Entry> entries; // Keyed by ThumbnailKey or PyramidKey.
+
+		/**
+		 * @param source The image source from which to open full-size images.
+		 * @param capacity The maximum total size of cached pyramids and thumbnails, in bytes.
+		 */
+		public Cache(ImageSource source, long capacity) {
+			this.source = Objects.requireNonNull(source);
+			this.entries = new WeightedLruCache<>(capacity, e -> e.bytes);
+		}
+
+		/**
+		 * Obtains a thumbnail of a print at the given size, opening the print's full image only if its pyramid isn't
+		 * cached.
+		 * @param print The print to display.
+		 * @param w The width of the thumbnail.
+		 * @param h The height of the thumbnail.
+		 * @return A thumbnail of the print, or null if the image source couldn't find an image of it.
+		 * @throws IOException If the image source encountered an error opening the print's image.
+		 * @throws IllegalArgumentException If the width or height isn't positive.
+		 */
+		public BufferedImage thumbnail(Card.Print print, int w, int h) throws IOException {
+			if (w <= 0 || h <= 0) throw new IllegalArgumentException("Thumbnails must be at least one pixel in size.");
+
+			ThumbnailKey thumbnailKey = new ThumbnailKey(print.reference(), w, h);
+
+			BufferedImage thumbnail = (BufferedImage) get(thumbnailKey);
+			if (thumbnail != null) return thumbnail;
+
+			ThumbnailPyramid pyramid = pyramid(print);
+			if (pyramid == null) return null;
+
+			thumbnail = pyramid.scaled(w, h);
+			put(thumbnailKey, thumbnail, (long) w * h * 4);
+			return thumbnail;
+		}
+
+		/**
+		 * Obtains the pyramid of a print, opening the print's full image if it isn't cached.
+		 * @param print The print whose pyramid to obtain.
+		 * @return The print's pyramid, or null if the image source couldn't find an image of it.
+		 * @throws IOException If the image source encountered an error opening the print's image.
+		 */
+		public ThumbnailPyramid pyramid(Card.Print print) throws IOException {
+			PyramidKey pyramidKey = new PyramidKey(print.reference());
+
+			ThumbnailPyramid pyramid = (ThumbnailPyramid) get(pyramidKey);
+			if (pyramid != null) return pyramid;
+
+			BufferedImage full = source.open(print);
+			if (full == null) return null;
+
+			pyramid = new ThumbnailPyramid(full);
+			put(pyramidKey, pyramid, pyramid.bytes());
+			return pyramid;
+		}
+
+		private Object get(Object key) {
+			Entry entry = entries.get(key);
+			return entry != null ? entry.value : null;
+		}
+
+		private void put(Object key, Object value, long size) {
+			entries.put(key, new Entry(value, size));
+		}
+
+		/**
+		 * @return The total size of the cached pyramids and thumbnails, in bytes.
+		 */
+		public long bytes() {
+			return entries.weight();
+		}
+
+		public void clear() {
+			entries.clear();
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package emi.lib.mtg.util;
+
+import emi.lib.mtg.Card;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A set of card prints which holds only their lightweight {@link Card.Print.Reference}s, and hydrates each print from a
+ * backing store the first time it's asked for. Hydrated prints are held softly, so the resident heap follows the
+ * prints the application is actually using rather than the whole catalogue: prints nobody refers to anymore may be
+ * collected under memory pressure, and are hydrated again if they're needed later.
+ *
+ * Data sources can return this from {@link emi.lib.mtg.DataSource#prints()} and {@link emi.lib.mtg.Set#prints()}, and
+ * its {@link #references()} from <code>printReferences()</code>. Iterating the set hydrates prints one at a time as
+ * they're reached; {@link #size()} and {@link #contains} never hydrate anything.
+ *
+ * @param <P> The type of print in the set.
+ */
+public class LazyPrints<P extends Card.Print> extends AbstractSet<P> {
+	private static class Entry<P> extends SoftReference<P> {
+		private final Card.Print.Reference key;
+
+		public Entry(Card.Print.Reference key, P print, ReferenceQueue<? super P> queue) {
+			super(print, queue);
+			this.key = key;
+		}
+	}
+
+	private final java.util.Set<Card.Print.Reference> references;
+	private final Function<? super Card.Print.Reference, ? extends P> hydrate;
+	private final ConcurrentHashMap<Card.Print.Reference, Entry<P>> hydrated = new ConcurrentHashMap<>();
+	private final ReferenceQueue<P> collected = new ReferenceQueue<>();
+
+	/**
+	 * @param references References to every print in the set. Copied; iteration follows their order.
+	 * @param hydrate Loads a print from the backing store. May be called from any thread, and should throw (e.g. an
+	 *                {@link java.io.UncheckedIOException}) rather than return null if the print can't be loaded.
+	 */
+	public LazyPrints(Collection<? extends Card.Print.Reference> references, Function<? super Card.Print.Reference, ? extends P> hydrate) {
+		this.references = Collections.unmodifiableSet(new LinkedHashSet<>(references));
+		this.hydrate = Objects.requireNonNull(hydrate);
+	}
+
+	/**
+	 * @return References to every print in this set, without hydrating any of them.
+	 */
+	public java.util.Set<Card.Print.Reference> references() {
+		return references;
+	}
+
+	/**
+	 * Obtains a print in this set, hydrating it if it isn't already resident.
+	 * @param reference The reference to the print to get.
+	 * @return The print, or null if it isn't in this set.
+	 */
+	public P get(Card.Print.Reference reference) {
+		if (!references.contains(reference)) return null;
+
+		purge();
+
+		Entry<P> entry = hydrated.get(reference);
+		P print = entry != null ? entry.get() : null;
+		if (print != null) return print;
+
+		P loaded = hydrate.apply(reference);
+		if (loaded == null) throw new IllegalStateException("Couldn't hydrate print " + reference.format());
+
+		// If another thread hydrated the same print meanwhile and it's still alive, share theirs.
+		while (true) {
+			Entry<P> existing = hydrated.putIfAbsent(reference, new Entry<>(reference, loaded, collected));
+			if (existing == null) return loaded;
+
+			P other = existing.get();
+			if (other != null) return other;
+			if (hydrated.replace(reference, existing, new Entry<>(reference, loaded, collected))) return loaded;
+		}
+	}
+
+	/**
+	 * @return The number of prints currently hydrated and resident.
+	 */
+	public int resident() {
+		purge();
+		return hydrated.size();
+	}
+
+	/**
+	 * Drops every hydrated print. Prints still referred to elsewhere remain valid, but will be hydrated anew when next
+	 * obtained from this set.
+	 */
+	public void evictAll() {
+		hydrated.clear();
+	}
+
+	private void purge() {
+		java.lang.ref.Reference<? extends P> ref;
+		while ((ref = collected.poll()) != null) {
+			Entry<?> entry = (Entry<?>) ref;
+			hydrated.remove(entry.key, entry);
+		}
+	}
+
+	@Override
+	public Iterator<P> iterator() {
+		Iterator<Card.Print.Reference> iter = references.iterator();
+		return new Iterator<P>() {
+			@Override
+			public boolean hasNext() {
+				return iter.hasNext();
+			}
+
+			@Override
+			public P next() {
+				return get(iter.next());
+			}
+		};
+	}
+
+	@Override
+	public int size() {
+		return references.size();
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return o instanceof Card.Print && references.contains(((Card.Print) o).reference());
+	}
+
+	/**
+	 * Views a set of prints as a set of their references, for data sources which don't load prints lazily.
+	 * @param prints The prints to view.
+	 * @return A live, unmodifiable view of the prints' references.
+	 */
+	public static java.util.Set<Card.Print.Reference> referencesOf(java.util.Set<? extends Card.Print> prints) {
+		if (prints instanceof LazyPrints) return ((LazyPrints<?>) prints).references();
+
+		return new AbstractSet<Card.Print.Reference>() {
+			@Override
+			public Iterator<Card.Print.Reference> iterator() {
+				Iterator<? extends Card.Print> iter = prints.iterator();
+				return new Iterator<Card.Print.Reference>() {
+					@Override
+					public boolean hasNext() {
+						return iter.hasNext();
+					}
+
+					@Override
+					public Card.Print.Reference next() {
+						return iter.next().reference();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return prints.size();
+			}
+		};
+	}
+}
@@ -0,0 +1,323 @@
+package emi.lib.mtg.util;
+
+import emi.lib.mtg.Card;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleConsumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+
+/**
+ * A framework for implementing {@link emi.lib.mtg.DataSource#loadData} in parallel. The data source's input is split
+ * into {@link Chunk}s, which are parsed concurrently on a fork-join pool straight into the loader's concurrent maps of
+ * cards by name, sets by code, and prints by set code and collector number. Chunks that encounter the same card or set
+ * share a single instance of it via {@link #card} and {@link #set}, so no separate merge step is needed.
+ *
+ * Each chunk has a weight, e.g. its size in bytes, and reports its progress in those units as it goes, so progress is
+ * reported accurately however unevenly the input is split.
+ *
+ * @param <C> The data source's card type.
+ * @param <S> The data source's set type.
+ * @param <P> The data source's print type.
+ */
+public class ParallelLoader<C extends Card, S extends emi.lib.mtg.Set, P extends Card.Print> {
+	/**
+	 * A piece of input which can be parsed independently of the others.
+	 */
+	public interface Chunk<C extends Card, S extends emi.lib.mtg.Set, P extends Card.Print> {
+		/**
+		 * @return The amount of work in this chunk, in whatever units it reports progress in.
+		 */
+		long weight();
+
+		/**
+		 * Parses this chunk into the loader's maps.
+		 * @param loader The loader to populate.
+		 * @param advance Should be called as parsing goes with the amount of weight just parsed, totalling this chunk's
+		 *                {@link #weight()}; whatever isn't reported is reported when this returns.
+		 * @throws IOException If the chunk couldn't be read or parsed.
+		 */
+		void parse(ParallelLoader<C, S, P> loader, LongConsumer advance) throws IOException;
+	}
+
+	/**
+	 * Parses a single line of a line-oriented file, e.g. one record of a JSON-lines dump.
+	 */
+	public interface LineParser<C extends Card, S extends emi.lib.mtg.Set, P extends Card.Print> {
+		void parse(String line, ParallelLoader<C, S, P> loader) throws IOException;
+	}
+
+	/**
+	 * Chunks are at least this many bytes, so that scheduling each costs little compared to parsing it.
+	 */
+	public static final long MIN_CHUNK_BYTES = 1 << 20;
+
+	/**
+	 * Line chunks are read into a single array, so they can't be larger than this.
+	 */
+	public static final long MAX_CHUNK_BYTES = Integer.MAX_VALUE - 8;
+
+	/**
+	 * Line chunks report their progress in steps of about this many bytes, rather than after every line.
+	 */
+	private static final int PROGRESS_STEP_BYTES = 64 << 10;
+
+	/**
+	 * Progress is passed on to the loader's callback in steps of this fraction of the total.
+	 */
+	private static final int PROGRESS_STEPS = 1000;
+
+	private static final int SCAN_BLOCK_BYTES = 8 << 10;
+
+	/**
+	 * Files are split into about this many chunks per thread, so threads which finish early can pick up the slack.
+	 */
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	public final ConcurrentMap<String, C> cards = new ConcurrentHashMap<>();
+	public final ConcurrentMap<String, S> sets = new ConcurrentHashMap<>();
+	public final ConcurrentMap<String, ConcurrentMap<String, P>> prints = new ConcurrentHashMap<>();
+
+	private final ForkJoinPool pool;
+	private final AtomicLong done = new AtomicLong(0), reportedStep = new AtomicLong(0);
+	private long total;
+	private DoubleConsumer progress;
+
+	/**
+	 * @param pool The fork-join pool on which to parse chunks.
+	 */
+	public ParallelLoader(ForkJoinPool pool) {
+		this.pool = Objects.requireNonNull(pool);
+	}
+
+	public ParallelLoader() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Obtains the card with the given key, creating it if no chunk has yet. The factory is called at most once per key.
+	 * @param key The card's key; usually its name, or its name and variation letter for the few cards which need one.
+	 * @param factory Creates the card if it doesn't exist yet.
+	 * @return The one card with the given key.
+	 */
+	public C card(String key, Function<? super String, ? extends C> factory) {
+		return cards.computeIfAbsent(key, factory);
+	}
+
+	/**
+	 * Obtains the set with the given code, creating it if no chunk has yet. The factory is called at most once per code.
+	 * @param code The set's code.
+	 * @param factory Creates the set if it doesn't exist yet.
+	 * @return The one set with the given code.
+	 */
+	public S set(String code, Function<? super String, ? extends S> factory) {
+		return sets.computeIfAbsent(code, factory);
+	}
+
+	/**
+	 * Adds a print.
+	 * @param setCode The code of the set containing the print.
+	 * @param collectorNumber The print's collector number.
+	 * @param print The print to add.
+	 * @return The print previously added with the same set code and collector number, if any, or null.
+	 */
+	public P print(String setCode, String collectorNumber, P print) {
+		return prints.computeIfAbsent(setCode, c -> new ConcurrentHashMap<>()).putIfAbsent(collectorNumber, print);
+	}
+
+	/**
+	 * @return The print with the given set code and collector number, or null if none has been added.
+	 */
+	public P print(String setCode, String collectorNumber) {
+		Map<String, P> set = prints.get(setCode);
+		return set != null ? set.get(collectorNumber) : null;
+	}
+
+	private void advance(long weight) {
+		final long completed = done.addAndGet(weight);
+		if (progress == null || total <= 0) return;
+
+		// Only the thread which carries progress into a new step reports it, so workers rarely contend for the lock.
+		final long step = Math.min(PROGRESS_STEPS, completed * PROGRESS_STEPS / total);
+		long last;
+		do {
+			last = reportedStep.get();
+			if (step <= last) return;
+		} while (!reportedStep.compareAndSet(last, step));
+
+		synchronized (progress) {
+			// Reread under the lock, so reports never go backwards however threads interleave.
+			progress.accept(Math.min(1.0, (double) done.get() / total));
+		}
+	}
+
+	/**
+	 * Parses every chunk in parallel, blocking until all are done.
+	 * @param chunks The chunks to parse.
+	 * @param progress Optional callback to report loading progress (0-1).
+	 * @throws IOException If any chunk couldn't be read or parsed.
+	 */
+	public void load(Collection<? extends Chunk<C, S, P>> chunks, DoubleConsumer progress) throws IOException {
+		List<Chunk<C, S, P>> list = new ArrayList<>(chunks);
+
+		long total = 0;
+		for (Chunk<C, S, P> chunk : list) total += chunk.weight();
+		this.total = total;
+		this.progress = progress;
+		this.done.set(0);
+		this.reportedStep.set(0);
+
+		try {
+			pool.submit(() -> list.parallelStream().forEach(chunk -> {
+				final long[] reported = { 0 };
+
+				try {
+					chunk.parse(this, weight -> {
+						reported[0] += weight;
+						advance(weight);
+					});
+				} catch (IOException ioe) {
+					throw new UncheckedIOException(ioe);
+				}
+
+				long remaining = chunk.weight() - reported[0];
+				if (remaining > 0) advance(remaining);
+			})).get();
+		} catch (InterruptedException ie) {
+			ie.printStackTrace();
+			throw new Error(ie);
+		} catch (ExecutionException ee) {
+			if (ee.getCause() instanceof UncheckedIOException) throw ((UncheckedIOException) ee.getCause()).getCause();
+			ee.getCause().printStackTrace();
+			throw new Error(ee.getCause());
+		}
+
+		// Always finish at exactly 1.0, even with no input or chunks which over-report.
+		if (progress != null) {
+			synchronized (progress) {
+				progress.accept(1.0);
+			}
+		}
+	}
+
+	/**
+	 * Splits a line-oriented file into chunks of whole lines, sized to keep every thread of the loader's pool busy.
+	 * @param file The file to split.
+	 * @param parser Parses each line.
+	 * @return Chunks covering every line of the file, weighted by their size in bytes.
+	 * @throws IOException If the file couldn't be read.
+	 */
+	public List<Chunk<C, S, P>> lineChunks(Path file, LineParser<C, S, P> parser) throws IOException {
+		final long size = Files.size(file);
+		return lineChunks(file, Math.max(MIN_CHUNK_BYTES, size / ((long) pool.getParallelism() * CHUNKS_PER_THREAD) + 1), parser);
+	}
+
+	/**
+	 * Splits a line-oriented file into chunks of whole lines, each about <code>chunkBytes</code> long.
+	 * @param file The file to split.
+	 * @param chunkBytes The approximate size of each chunk, at most {@link #MAX_CHUNK_BYTES}. Chunks are extended to
+	 *                   the end of their last line.
+	 * @param parser Parses each line.
+	 * @return Chunks covering every line of the file, weighted by their size in bytes.
+	 * @throws IOException If the file couldn't be read, or a line is so long that its chunk can't be held in memory.
+	 */
+	public List<Chunk<C, S, P>> lineChunks(Path file, long chunkBytes, LineParser<C, S, P> parser) throws IOException {
+		if (chunkBytes <= 0 || chunkBytes > MAX_CHUNK_BYTES) throw new IllegalArgumentException(String.format("Chunk size %d is outside (0, %d].", chunkBytes, MAX_CHUNK_BYTES));
+
+		List<Chunk<C, S, P>> chunks = new ArrayList<>();
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			final long size = channel.size();
+			final ByteBuffer block = ByteBuffer.allocate(SCAN_BLOCK_BYTES);
+
+			long start = 0;
+			while (start < size) {
+				long end = Math.min(size, start + chunkBytes);
+				if (end < size) end = lineEnd(channel, end - 1, block, file);
+				if (end - start > MAX_CHUNK_BYTES) throw new IOException(String.format("Line ending at byte %d of %s is too long to load.", end, file));
+
+				chunks.add(new LineChunk<>(file, start, end, parser));
+				start = end;
+			}
+		}
+
+		return chunks;
+	}
+
+	/**
+	 * @return The position just past the first newline at or after <code>from</code>, or the end of the file.
+	 */
+	private static long lineEnd(FileChannel channel, long from, ByteBuffer block, Path file) throws IOException {
+		final long size = channel.size();
+
+		for (long position = from; position < size; ) {
+			block.clear();
+			int read = channel.read(block, position);
+			if (read <= 0) throw new IOException("Unexpected end of " + file);
+
+			for (int i = 0; i < read; ++i) {
+				if (block.get(i) == '\n') return position + i + 1;
+			}
+
+			position += read;
+		}
+
+		return size;
+	}
+
+	private static class LineChunk<C extends Card, S extends emi.lib.mtg.Set, P extends Card.Print> implements Chunk<C, S, P> {
+		private final Path file;
+		private final long start, end;
+		private final LineParser<C, S, P> parser;
+
+		private LineChunk(Path file, long start, long end, LineParser<C, S, P> parser) {
+			this.file = file;
+			this.start = start;
+			this.end = end;
+			this.parser = parser;
+		}
+
+		@Override
+		public long weight() {
+			return end - start;
+		}
+
+		@Override
+		public void parse(ParallelLoader<C, S, P> loader, LongConsumer advance) throws IOException {
+			final byte[] bytes = new byte[(int) (end - start)];
+
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				ByteBuffer buffer = ByteBuffer.wrap(bytes);
+				while (buffer.hasRemaining()) {
+					if (channel.read(buffer, start + buffer.position()) < 0) throw new IOException("Unexpected end of " + file);
+				}
+			}
+
+			int lineStart = 0, reported = 0;
+			for (int i = 0; i <= bytes.length; ++i) {
+				if (i < bytes.length && bytes[i] != '\n') continue;
+
+				int lineEnd = i > lineStart && bytes[i - 1] == '\r' ? i - 1 : i;
+				if (lineEnd > lineStart) parser.parse(new String(bytes, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8), loader);
+
+				lineStart = Math.min(i + 1, bytes.length);
+				if (lineStart - reported >= PROGRESS_STEP_BYTES) {
+					advance.accept(lineStart - reported);
+					reported = lineStart;
+				}
+			}
+
+			if (bytes.length > reported) advance.accept(bytes.length - reported);
+		}
+	}
+}
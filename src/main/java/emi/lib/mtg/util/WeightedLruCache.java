@@ -0,0 +1,88 @@
+package emi.lib.mtg.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * A thread-safe least-recently-used cache bounded by the total weight of its values rather than their number, e.g.
+ * the size in bytes of cached images. Values heavier than the whole capacity are never cached.
+ *
+ * @param <K> The type of the cache's keys.
+ * @param <V> The type of the cache's values.
+ */
+public class WeightedLruCache<K, V> {
+	private final long capacity;
+	private final ToLongFunction<? super V> weigher;
+	private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long weight;
+
+	/**
+	 * @param capacity The maximum total weight of cached values.
+	 * @param weigher Computes the weight of a value. Must return the same weight each time it's asked about a value.
+	 */
+	public WeightedLruCache(long capacity, ToLongFunction<? super V> weigher) {
+		this.capacity = capacity;
+		this.weigher = weigher;
+	}
+
+	public synchronized V get(K key) {
+		return entries.get(key);
+	}
+
+	/**
+	 * Caches a value, evicting least-recently-used values until the cache's total weight is within its capacity.
+	 * @param key The key under which to cache the value.
+	 * @param value The value to cache.
+	 * @return True if the value was cached, or false if it alone outweighs the cache's capacity. Any value previously
+	 * cached under the key is discarded either way, so it's never returned in place of the newer one.
+	 */
+	public synchronized boolean put(K key, V value) {
+		long w = weigher.applyAsLong(value);
+		if (w > capacity) {
+			remove(key);
+			return false;
+		}
+
+		V old = entries.put(key, value);
+		if (old != null) weight -= weigher.applyAsLong(old);
+		weight += w;
+
+		Iterator<Map.Entry<K, V>> iter = entries.entrySet().iterator();
+		while (weight > capacity && iter.hasNext()) {
+			Map.Entry<K, V> eldest = iter.next();
+			if (eldest.getKey().equals(key)) continue;
+			iter.remove();
+			weight -= weigher.applyAsLong(eldest.getValue());
+		}
+
+		return true;
+	}
+
+	public synchronized V remove(K key) {
+		V old = entries.remove(key);
+		if (old != null) weight -= weigher.applyAsLong(old);
+		return old;
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		weight = 0;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return The total weight of the cached values.
+	 */
+	public synchronized long weight() {
+		return weight;
+	}
+
+	public long capacity() {
+		return capacity;
+	}
+}